@@ -1,102 +1,156 @@
 package all;
 
-
-class Item {
-	String name;
-	int next;
-	public Item(String name, int next) {
-		this.name = name;
-		this.next = next;
-	}
-	public String toString() {
-		return "(" + name + "," + next + ")";
-	}
-}
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class ArrayLL {
 
-	private Item[] all;
+	// The list is stored as parallel arrays rather than an array of Item objects:
+	// names[i] and next[i] together are the item in slot i, so walking the list
+	// touches only these two arrays and no per-item objects are allocated
+	private String[] names;
+	private int[] next;
+	// prev[i] is the slot before slot i in the list (-1 for the front), so any
+	// slot can be unlinked in O(1) time once it has been found
+	private int[] prev;
 	private int numItems;
 	private int front;
 	private int[] avail;
 	private int numAvail;
-	
 
-	// Constructor, initializes all data fields, to represent 
-	// an empty Item array linked list of length maxItems
+	// Optional open addressing index from name to slot, null if not indexed.
+	// index[h] holds slot+1 (0 means empty) of the frontmost item with that name,
+	// and dup[slot] links to the next item further back with the same name.
+	// Since items are only ever added at the front, the most recently added item
+	// with a name is always the frontmost one, so each dup chain is a stack.
+	private int[] index;
+	private int[] dup;
+
+	// If true, the arrays double in size when the list is full instead of addFront failing
+	private boolean growable;
+
+
+	// Constructor, initializes all data fields, to represent
+	// an empty array linked list of length maxItems
+	// The avail array is a stack of free slots, with the top at avail[numAvail-1],
+	// filled so that the lowest slots are handed out first
 	public ArrayLL(int maxItems) {
-		all = new Item[maxItems];
+		this(maxItems, false);
+	}
+
+	// Same as above, and if indexed is true also keeps a hash index of the names
+	// so that contains and delete run in O(1) expected time
+	public ArrayLL(int maxItems, boolean indexed) {
+		this(maxItems, indexed, false);
+	}
+
+	// Same as above, and if growable is true maxItems is only the initial capacity:
+	// when the list is full the arrays are doubled, so addFront takes amortized O(1) time
+	// and never returns false
+	public ArrayLL(int maxItems, boolean indexed, boolean growable) {
+		this.growable = growable;
+		names = new String[maxItems];
+		next = new int[maxItems];
+		prev = new int[maxItems];
 		numItems=0;
-		front=0;
+		front=-1;
 		avail = new int[maxItems];
 		numAvail=maxItems;
-		
-		
-		
-
-		// COMPLETE THIS CONSTRUCTOR
+		for(int i=0; i<maxItems; i++){
+			avail[i]=maxItems-1-i;
+		}
+		if(indexed){
+			index = new int[indexSize(maxItems)];
+			dup = new int[maxItems];
+		}
+	}
 
+	// Index table length for a list of the given capacity, a power of 2 at least twice as big
+	private static int indexSize(int capacity) {
+		int size=2;
+		while(size<2*capacity){
+			size*=2;
+		}
+		return size;
 	}
 
 	// Adds a name to the front of this array linked list, in worst case O(1) time,
 	// and returns true.
 	// Returns false if the array is full, in O(1) time
+	// A growable list is never full; it is resized instead
 	public boolean addFront(String name) {
-		String firstname;
 		if(numAvail==0){
-			return false;
-		}
-		else if(all[0]==null){
-			all[0]=new Item(name,front);
-		}
-		else{
-			for(int i=0; i<numItems; i++){
-				firstname=all[numItems-(i+1)].name;
-				all[numItems-i]=new Item(firstname, numItems-i);
+			if(!growable){
+				return false;
 			}
-			all[0]=new Item(name,front);
+			grow(Math.max(1, 2*names.length));
 		}
-		numAvail--;
+		int slot=avail[--numAvail];
+		names[slot]=name;
+		next[slot]=front;
+		prev[slot]=-1;
+		if(front!=-1){
+			prev[front]=slot;
+		}
+		front=slot;
 		numItems++;
-		
-
-		// COMPLETE THIS METHOD
-		
-		// THE NEXT LINE IS ONLY A PLACEHOLDER TO MAKE THE PROGRAM COMPILE 
-		// YOU WILL NEED TO CHANGE IT APPROPRIATELY IN YOUR IMPLEMENTATION
-
+		if(index!=null){
+			indexPush(slot);
+		}
 		return true;
+	}
 
+	// Adds all the given names to the front of this array linked list, as if addFront
+	// were called for each of them in iteration order (so the last name ends up first),
+	// and returns true.
+	// Returns false, without adding anything, if there is not room for all of them;
+	// a growable list is resized at most once to make room
+	public boolean addAllFront(Collection<String> newNames) {
+		int count=newNames.size();
+		if(count>numAvail){
+			if(!growable){
+				return false;
+			}
+			grow(Math.max(2*names.length, numItems+count));
+		}
+		for(String name : newNames){
+			int slot=avail[--numAvail];
+			names[slot]=name;
+			next[slot]=front;
+			prev[slot]=-1;
+			if(front!=-1){
+				prev[front]=slot;
+			}
+			front=slot;
+			if(index!=null){
+				indexPush(slot);
+			}
+		}
+		numItems+=count;
+		return true;
 	}
 
 	// Deletes the name that is at the front this array linked list, in worst case O(1) time,
 	// and returns the deleted name
 	// Returns null if the list is empty, in O(1) time
 	public String deleteFront() {
-		String temp = all[0].name;
 		if(numItems==0){
 			return null;
 		}
-		else if(numItems==1){
-			return temp;
-		}
-		else{
-			for(int i=0; i<numItems-1; i++){
-				all[i]=new Item(all[i+1].name,i);
-			}
-		}
-		all[numItems-1]=null;
-		numItems--;
-		numAvail++;
+		int slot=front;
+		String temp=names[slot];
+		remove(slot);
 		return temp;
-			
-
-		// COMPLETE THIS METHOD
-
-		// THE NEXT LINE IS ONLY A PLACEHOLDER TO MAKE THE PROGRAM COMPILE 
-		// YOU WILL NEED TO CHANGE IT APPROPRIATELY IN YOUR IMPLEMENTATION
-
-			
 	}
 
 	// Deletes the given name from this array linked list, and returns true.
@@ -105,55 +159,307 @@ public class ArrayLL {
 	// worst case O(n) time, i.e. time must not depend on the length of the all array
 	// (since the array might include available space not filled by active items)
 	// Also, avail array should be accessed/updated in O(1) time
+	// If the list is indexed, this runs in O(1) expected time
 	public boolean delete(String name) {
-		
-		if(numItems==0){
+		int slot=find(name);
+		if(slot==-1){
 			return false;
 		}
+		remove(slot);
+		return true;
+	}
+
+	// Returns the slot of the frontmost item with the given name, or -1 if there is none
+	private int find(String name) {
+		if(index!=null){
+			int h=indexOf(name);
+			return h==-1 ? -1 : index[h]-1;
+		}
+		for(int ptr=front; ptr!=-1; ptr=next[ptr]){
+			if(names[ptr].equals(name)){
+				return ptr;
+			}
+		}
+		return -1;
+	}
+
+	// Unlinks the given slot from the list and returns it to the avail stack, in O(1) time
+	private void remove(int slot) {
+		if(index!=null){
+			indexPop(slot);
+		}
+		if(prev[slot]==-1){
+			front=next[slot];
+		}
 		else{
-			for(int i=0; i<numItems; i++){
-				if(all[i].name.equals(name)){
-					if(i<=numItems-1 && i!=0){
-						for(int j=i; j<numItems-1; j++){
-							Item temp = new Item(all[j+1].name,j);
-							all[j]=temp;
-						}
+			next[prev[slot]]=next[slot];
+		}
+		if(next[slot]!=-1){
+			prev[next[slot]]=prev[slot];
+		}
+		names[slot]=null;
+		avail[numAvail++]=slot;
+		numItems--;
+	}
+
+	// Deletes every name that matches the given test, in a single pass over the list,
+	// and returns true if any name was deleted
+	public boolean removeIf(Predicate<? super String> filter) {
+		int removed=0;
+		int ptr=front;
+		while(ptr!=-1){
+			int after=next[ptr];
+			if(filter.test(names[ptr])){
+				if(prev[ptr]==-1){
+					front=after;
+				}
+				else{
+					next[prev[ptr]]=after;
+				}
+				if(after!=-1){
+					prev[after]=prev[ptr];
+				}
+				names[ptr]=null;
+				avail[numAvail++]=ptr;
+				removed++;
+			}
+			ptr=after;
+		}
+		numItems-=removed;
+		if(removed>0 && index!=null){
+			// names may have left the middle of their dup chains, so rebuild the index
+			// from the back of the list, which is one more pass
+			Arrays.fill(index, 0);
+			int last=-1;
+			for(ptr=front; ptr!=-1; ptr=next[ptr]){
+				last=ptr;
+			}
+			for(ptr=last; ptr!=-1; ptr=prev[ptr]){
+				indexPush(ptr);
+			}
+		}
+		return removed>0;
+	}
+
+	// Enlarges the arrays to the given capacity, keeping every item in its slot,
+	// and pushes the new slots on the avail stack with the lowest on top
+	private void grow(int capacity) {
+		int oldCapacity=names.length;
+		names=Arrays.copyOf(names, capacity);
+		next=Arrays.copyOf(next, capacity);
+		prev=Arrays.copyOf(prev, capacity);
+		avail=Arrays.copyOf(avail, capacity);
+		for(int i=capacity-1; i>=oldCapacity; i--){
+			avail[numAvail++]=i;
+		}
+		if(index!=null){
+			dup=Arrays.copyOf(dup, capacity);
+			int[] old=index;
+			index=new int[indexSize(capacity)];
+			int mask=index.length-1;
+			for(int i=0; i<old.length; i++){
+				if(old[i]!=0){
+					int h=hash(names[old[i]-1]);
+					while(index[h]!=0){
+						h=(h+1)&mask;
 					}
-					all[numItems-1]=null;
-					numItems--;
-					numAvail++;
-					return true;
+					index[h]=old[i];
 				}
 			}
 		}
+	}
 
-		// COMPLETE THIS METHOD
+	// Moves the items into slots 0..n-1 in list order, so the list is one contiguous
+	// run of the arrays again after many deletes, in O(n + capacity) time
+	public void compact() {
+		relayout(names.length);
+	}
 
-		// THE NEXT LINE IS ONLY A PLACEHOLDER TO MAKE THE PROGRAM COMPILE
-		// YOU WILL NEED TO CHANGE IT APPROPRIATELY IN YOUR IMPLEMENTATION
+	// Compacts the list and shrinks the arrays to exactly the number of items.
+	// A growable list grows again as needed; for a list that is not growable
+	// this becomes its new maximum size
+	public void trimToSize() {
+		relayout(numItems);
+	}
 
-		return false;
+	// Copies the items in list order into slots 0..n-1 of new arrays of the given capacity
+	private void relayout(int capacity) {
+		String[] newNames=new String[capacity];
+		int[] newNext=new int[capacity];
+		int[] newPrev=new int[capacity];
+		int i=0;
+		for(int ptr=front; ptr!=-1; ptr=next[ptr]){
+			newNames[i]=names[ptr];
+			newNext[i]=i+1;
+			newPrev[i]=i-1;
+			i++;
+		}
+		if(i>0){
+			newNext[i-1]=-1;
+		}
+		front = i>0 ? 0 : -1;
+		names=newNames;
+		next=newNext;
+		prev=newPrev;
+		avail=new int[capacity];
+		numAvail=capacity-numItems;
+		for(int k=0; k<numAvail; k++){
+			avail[k]=capacity-1-k;
+		}
+		if(index!=null){
+			index=new int[indexSize(capacity)];
+			dup=new int[capacity];
+			// push from the back so the frontmost item ends up on top of each dup chain
+			for(int slot=numItems-1; slot>=0; slot--){
+				indexPush(slot);
+			}
+		}
 	}
 
 	// Checks if the given name is in this array linked list
 	// Note: If there are n items in the list, then this method must run in
 	// worst case O(n) time, i.e. time does not depend on the length of the all array.
+	// If the list is indexed, this runs in O(1) expected time
 	public boolean contains(String name) {
-		if(numItems==0){
-			return false;
+		return find(name)!=-1;
+	}
+
+	// Returns the number of names in this array linked list
+	public int size() {
+		return numItems;
+	}
+
+	// Returns a spliterator over the names in this array linked list, from first to last.
+	// It splits by copying batches of names off the front of the chain into arrays,
+	// so a parallel stream can work on those while this one carries on down the chain.
+	// The list must not be changed while the spliterator is in use.
+	public Spliterator<String> spliterator() {
+		return new ListSpliterator(front, numItems);
+	}
+
+	// Returns a sequential stream over the names in this array linked list, from first to last
+	public Stream<String> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	// Returns a parallel stream over the names in this array linked list
+	public Stream<String> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	// Spliterator that walks the chain from a given slot
+	private class ListSpliterator implements Spliterator<String> {
+
+		// batches handed out by trySplit start at this size and grow by it each time
+		private static final int BATCH_UNIT = 1024;
+
+		private int ptr;
+		private int remaining;
+		private int batch;
+
+		ListSpliterator(int ptr, int remaining) {
+			this.ptr = ptr;
+			this.remaining = remaining;
 		}
-		for(int i=0; i<numItems; i++){
-			if(all[i].name.equals(name)){
-				return true;
+
+		public boolean tryAdvance(Consumer<? super String> action) {
+			if(ptr==-1){
+				return false;
 			}
+			String name=names[ptr];
+			ptr=next[ptr];
+			remaining--;
+			action.accept(name);
+			return true;
 		}
 
-		// COMPLETE THIS METHOD
+		public void forEachRemaining(Consumer<? super String> action) {
+			int p=ptr;
+			ptr=-1;
+			remaining=0;
+			for(; p!=-1; p=next[p]){
+				action.accept(names[p]);
+			}
+		}
 
-		// THE NEXT LINE IS ONLY A PLACEHOLDER TO MAKE THE PROGRAM COMPILE
-		// YOU WILL NEED TO CHANGE IT APPROPRIATELY IN YOUR IMPLEMENTATION
+		public Spliterator<String> trySplit() {
+			if(remaining<=1){
+				return null;
+			}
+			batch=Math.min(batch+BATCH_UNIT, remaining);
+			if(batch==remaining){
+				// split what is left in half rather than handing all of it away
+				batch=remaining/2;
+			}
+			String[] part=new String[batch];
+			for(int i=0; i<batch; i++){
+				part[i]=names[ptr];
+				ptr=next[ptr];
+			}
+			remaining-=batch;
+			return Spliterators.spliterator(part, characteristics());
+		}
 
-		return false;
+		public long estimateSize() {
+			return remaining;
+		}
+
+		public int characteristics() {
+			return ORDERED | NONNULL | SIZED | SUBSIZED;
+		}
+	}
+
+	// Home position of a name in the index
+	private int hash(String name) {
+		int h=name.hashCode();
+		return (h ^ (h>>>16)) & (index.length-1);
+	}
+
+	// Returns the index position holding the given name, or -1 if it is not there
+	private int indexOf(String name) {
+		int mask=index.length-1;
+		for(int h=hash(name); index[h]!=0; h=(h+1)&mask){
+			if(names[index[h]-1].equals(name)){
+				return h;
+			}
+		}
+		return -1;
+	}
+
+	// Makes the given (new front) slot the frontmost item for its name
+	private void indexPush(int slot) {
+		int mask=index.length-1;
+		int h=hash(names[slot]);
+		while(index[h]!=0 && !names[index[h]-1].equals(names[slot])){
+			h=(h+1)&mask;
+		}
+		dup[slot]=index[h]-1;
+		index[h]=slot+1;
+	}
+
+	// Removes the given slot, which must be the frontmost item for its name, from the index
+	private void indexPop(int slot) {
+		int h=indexOf(names[slot]);
+		if(dup[slot]!=-1){
+			index[h]=dup[slot]+1;
+			return;
+		}
+		// backward shift deletion: pull later entries of the probe run into the hole
+		// so lookups never need tombstones
+		int mask=index.length-1;
+		int j=h;
+		while(true){
+			j=(j+1)&mask;
+			if(index[j]==0){
+				break;
+			}
+			int home=hash(names[index[j]-1]);
+			if(((j-home)&mask) >= ((j-h)&mask)){
+				index[h]=index[j];
+				h=j;
+			}
+		}
+		index[h]=0;
 	}
 
 	// Prints the items in this array linked list in sequence from first to last,
@@ -163,30 +469,64 @@ public class ArrayLL {
 	// Make sure there aren't any extra commas in your output.
 	// If the list is empty, you may print either nothing, or an empty string
 	public void printList() {
-		for(int i=0; i<all.length; i++){
-			if(all[i]!=null){
-				if(i<numItems-1){
-					System.out.print(all[i].name+",");
-				}
-				else{
-					System.out.print(all[i].name);
-				}
-				
+		try{
+			appendTo(System.out);
+		}
+		catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Writes the items in this array linked list to out in the same format as printList,
+	// in O(n) time, walking only the live items.
+	// Output goes through a fixed size buffer, so nothing is allocated per item
+	public void appendTo(Appendable out) throws IOException {
+		OutBuffer buf=new OutBuffer(out);
+		for(int ptr=front; ptr!=-1; ptr=next[ptr]){
+			if(ptr!=front){
+				buf.put(',');
 			}
+			buf.put(names[ptr]);
 		}
-		
+		buf.flush();
+	}
 
-		// COMPLETE THIS METHOD
+	// Same as appendTo, for a Writer; the buffer is written with write(char[],int,int)
+	public void writeTo(Writer out) throws IOException {
+		appendTo(out);
 	}
 
 	// Prints all the entries in the main array (including unused spaces)
+	// Used slots are printed as (name,next), unused slots as null
 	// You may fill in this method and use it for debugging
 	// This method WILL NOT be graded
 	public void printArray() {
-		for(int i=0; i<all.length; i++){
-			System.out.println(all[i]);
+		try{
+			appendArrayTo(System.out);
+		}
+		catch(IOException e){
+			throw new UncheckedIOException(e);
 		}
+	}
 
+	// Writes all the entries in the main array to out in the same format as printArray
+	public void appendArrayTo(Appendable out) throws IOException {
+		OutBuffer buf=new OutBuffer(out);
+		String newline=System.lineSeparator();
+		for(int i=0; i<names.length; i++){
+			if(names[i]==null){
+				buf.put("null");
+			}
+			else{
+				buf.put('(');
+				buf.put(names[i]);
+				buf.put(',');
+				buf.put(next[i]);
+				buf.put(')');
+			}
+			buf.put(newline);
+		}
+		buf.flush();
 	}
 
 	// Prints all the entries in the avail array that correspond to
@@ -194,29 +534,91 @@ public class ArrayLL {
 	// You may fill in this method and use it for debugging
 	// This method WILL NOT be graded
 	public void printAvailableSpots() {
-		int j=0;
-		for(int i =avail.length-numAvail; i<avail.length; i++){
-           avail[j]=i;
-           j++;
-           
-		}
-		if(all[0]!=null){
-     	   for(int i=0; i<avail.length; i++){
-     		   if(avail[i]==0){
-     			   avail[i]=-1;
-     		   }
-     	   }
-        }
-		else{
-			for(int i=0; i<avail.length-1; i++){
-				if(avail[i]==0 && avail[i+1]==0){
-					avail[i]=-1;
+		try{
+			appendAvailableSpotsTo(System.out);
+		}
+		catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Writes the free slots on the avail stack to out, separated by commas,
+	// in O(number of free slots) time
+	public void appendAvailableSpotsTo(Appendable out) throws IOException {
+		OutBuffer buf=new OutBuffer(out);
+		for(int i=0; i<numAvail; i++){
+			if(i>0){
+				buf.put(',');
+			}
+			buf.put(avail[i]);
+		}
+		buf.flush();
+	}
+
+	// Fixed size character buffer in front of an Appendable, so that output is
+	// handed over in large blocks instead of one call per item
+	private static class OutBuffer {
+
+		private static final int SIZE = 8192;
+
+		private final Appendable out;
+		private final char[] chars = new char[SIZE];
+		private final CharBuffer wrapped = CharBuffer.wrap(chars);
+		private int len;
+
+		OutBuffer(Appendable out) {
+			this.out = out;
+		}
+
+		void put(char c) throws IOException {
+			if(len==SIZE){
+				flush();
+			}
+			chars[len++]=c;
+		}
+
+		void put(String s) throws IOException {
+			int from=0;
+			while(from<s.length()){
+				if(len==SIZE){
+					flush();
 				}
+				int n=Math.min(s.length()-from, SIZE-len);
+				s.getChars(from, from+n, chars, len);
+				len+=n;
+				from+=n;
 			}
 		}
-		for(int i=0; i<avail.length; i++){
-			System.out.print(avail[i]);
+
+		void put(int v) throws IOException {
+			if(v<0){
+				put('-');
+				v=-v;
+			}
+			int digits=1;
+			for(int t=v; t>=10; t/=10){
+				digits++;
+			}
+			if(len+digits>SIZE){
+				flush();
+			}
+			for(int i=len+digits-1; i>=len; i--){
+				chars[i]=(char)('0'+v%10);
+				v/=10;
+			}
+			len+=digits;
+		}
+
+		void flush() throws IOException {
+			if(len>0){
+				if(out instanceof Writer){
+					((Writer)out).write(chars, 0, len);
+				}
+				else{
+					out.append(wrapped, 0, len);
+				}
+				len=0;
+			}
 		}
-		
 	}
 }
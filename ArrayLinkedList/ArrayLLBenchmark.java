@@ -0,0 +1,150 @@
+package all;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+
+// Footprint and traversal time of ArrayLL's parallel arrays against the original layout,
+// an array of Item objects each holding a name and a next link. Run with
+//     java all.ArrayLLBenchmark [entries]
+// Both lists hold the same String objects, so the footprint reported is only what the
+// list itself takes. Traversal is a contains for a name that is not in the list, which
+// walks every entry. The lists are built by adding every entry and then deleting and
+// adding back half of them, so the Item objects are not all in allocation order.
+public class ArrayLLBenchmark {
+
+	private static final int WALKS = 20;
+	private static final int WARMUP_ROUNDS = 3;
+
+	// The original storage: one Item per slot, linked through Item.next
+	private static class ItemList {
+
+		private static class Item {
+			String name;
+			int next;
+			Item(String name, int next) {
+				this.name = name;
+				this.next = next;
+			}
+		}
+
+		private final Item[] all;
+		private int front=-1;
+		private final int[] avail;
+		private int numAvail;
+
+		ItemList(int maxItems) {
+			all = new Item[maxItems];
+			avail = new int[maxItems];
+			numAvail = maxItems;
+			for(int i=0; i<maxItems; i++){
+				avail[i]=maxItems-1-i;
+			}
+		}
+
+		boolean addFront(String name) {
+			if(numAvail==0){
+				return false;
+			}
+			int slot=avail[--numAvail];
+			all[slot]=new Item(name,front);
+			front=slot;
+			return true;
+		}
+
+		String deleteFront() {
+			if(front==-1){
+				return null;
+			}
+			int slot=front;
+			String temp=all[slot].name;
+			front=all[slot].next;
+			all[slot]=null;
+			avail[numAvail++]=slot;
+			return temp;
+		}
+
+		boolean contains(String name) {
+			for(int ptr=front; ptr!=-1; ptr=all[ptr].next){
+				if(all[ptr].name.equals(name)){
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static Object keep;
+
+	public static void main(String[] args) {
+		int n = args.length>0 ? Integer.parseInt(args[0]) : 1000000;
+		String[] names = new String[n];
+		for(int i=0; i<n; i++){
+			names[i] = "name" + i;
+		}
+
+		long before = usedHeap();
+		ItemList items = new ItemList(n);
+		fill(items, names);
+		long itemBytes = usedHeap() - before;
+		keep = items;
+
+		before = usedHeap();
+		ArrayLL arrays = new ArrayLL(n);
+		fill(arrays, names);
+		long arrayBytes = usedHeap() - before;
+		keep = arrays;
+
+		double itemWalk=0, arrayWalk=0;
+		for(int round=0; round<=WARMUP_ROUNDS; round++){
+			long start = System.nanoTime();
+			for(int i=0; i<WALKS; i++){
+				items.contains("missing");
+			}
+			itemWalk = (System.nanoTime()-start) / ((double)WALKS*n);
+			start = System.nanoTime();
+			for(int i=0; i<WALKS; i++){
+				arrays.contains("missing");
+			}
+			arrayWalk = (System.nanoTime()-start) / ((double)WALKS*n);
+		}
+
+		System.out.printf("%d entries%n", n);
+		System.out.printf("%-14s %14s %14s%n", "layout", "bytes/entry", "walk ns/entry");
+		System.out.printf("%-14s %14.1f %14.2f%n", "Item[]", (double)itemBytes/n, itemWalk);
+		System.out.printf("%-14s %14.1f %14.2f%n", "parallel", (double)arrayBytes/n, arrayWalk);
+	}
+
+	private static void fill(ItemList list, String[] names) {
+		for(String name : names){
+			list.addFront(name);
+		}
+		for(int i=0; i<names.length/2; i++){
+			list.deleteFront();
+		}
+		for(int i=0; i<names.length/2; i++){
+			list.addFront(names[i]);
+		}
+	}
+
+	private static void fill(ArrayLL list, String[] names) {
+		for(String name : names){
+			list.addFront(name);
+		}
+		for(int i=0; i<names.length/2; i++){
+			list.deleteFront();
+		}
+		for(int i=0; i<names.length/2; i++){
+			list.addFront(names[i]);
+		}
+	}
+
+	// Heap in use after a full collection
+	private static long usedHeap() {
+		MemoryMXBean bean = ManagementFactory.getMemoryMXBean();
+		for(int i=0; i<3; i++){
+			System.gc();
+		}
+		return bean.getHeapMemoryUsage().getUsed();
+	}
+}
@@ -0,0 +1,175 @@
+package all;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+// Thread safe version of ArrayLL for many threads adding and removing at the front.
+// Both the list and the free slots are stacks linked through the same next array
+// (a slot is on exactly one of them at any time), and the head of each stack is
+// updated with compare-and-set, so no locks are taken.
+// Each head is a long holding the slot in the low 32 bits and a tag in the high
+// 32 bits that is bumped on every change, so a head that was popped and pushed
+// back in between (the ABA problem) still fails the compare-and-set.
+// Only front operations are supported: unlinking a name from the middle of the
+// list cannot be done with a single compare-and-set.
+// Readers walking the list check a version kept for each slot, which is bumped
+// whenever the slot is popped off the list, so that a walk that was on a slot
+// as it moved to the free stack starts again instead of wandering off the list.
+public class ConcurrentArrayLL {
+
+	private final AtomicReferenceArray<String> names;
+	private final AtomicIntegerArray next;
+	private final AtomicIntegerArray version;
+	private final AtomicLong front;
+	private final AtomicLong avail;
+	private final AtomicInteger numItems;
+
+
+	// Constructor, initializes all data fields, to represent
+	// an empty array linked list of length maxItems
+	public ConcurrentArrayLL(int maxItems) {
+		names = new AtomicReferenceArray<String>(maxItems);
+		next = new AtomicIntegerArray(maxItems);
+		version = new AtomicIntegerArray(maxItems);
+		for(int i=0; i<maxItems; i++){
+			next.set(i, i+1<maxItems ? i+1 : -1);
+		}
+		front = new AtomicLong(head(0, -1));
+		avail = new AtomicLong(head(0, maxItems>0 ? 0 : -1));
+		numItems = new AtomicInteger();
+	}
+
+	// Packs a tag and a slot (-1 for an empty stack) into a stack head
+	private static long head(long tag, int slot) {
+		return (tag<<32) | (slot & 0xFFFFFFFFL);
+	}
+
+	// Pops a slot off the given stack and returns it, or -1 if the stack is empty
+	private int pop(AtomicLong stack) {
+		while(true){
+			long h=stack.get();
+			int slot=(int)h;
+			if(slot==-1){
+				return -1;
+			}
+			if(stack.compareAndSet(h, head((h>>>32)+1, next.get(slot)))){
+				return slot;
+			}
+		}
+	}
+
+	// Pushes a slot, which must be owned by the calling thread, onto the given stack
+	private void push(AtomicLong stack, int slot) {
+		while(true){
+			long h=stack.get();
+			next.set(slot, (int)h);
+			if(stack.compareAndSet(h, head((h>>>32)+1, slot))){
+				return;
+			}
+		}
+	}
+
+	// Adds a name to the front of this list and returns true,
+	// or returns false if the array is full
+	public boolean addFront(String name) {
+		int slot=pop(avail);
+		if(slot==-1){
+			return false;
+		}
+		names.set(slot, name);
+		push(front, slot);
+		numItems.incrementAndGet();
+		return true;
+	}
+
+	// Deletes the name that is at the front of this list and returns it,
+	// or returns null if the list is empty
+	public String deleteFront() {
+		int slot=pop(front);
+		if(slot==-1){
+			return null;
+		}
+		// before the name or next link of the slot change, so readers see it has gone
+		version.incrementAndGet(slot);
+		String temp=names.get(slot);
+		names.set(slot, null);
+		numItems.decrementAndGet();
+		push(avail, slot);
+		return temp;
+	}
+
+	// Checks if the given name is in this list.
+	// This may run at the same time as addFront and deleteFront in other threads.
+	// Names added or deleted during the call may or may not be seen, but a name that
+	// is in the list for the whole call is always found: each step re-checks that the
+	// slot it came from is still in the list, and starts again from the front if not.
+	// With other threads changing the front all the time, it may have to start again
+	// many times, so it is lock-free but not wait-free.
+	public boolean contains(String name) {
+		return walk(name, null);
+	}
+
+	// Returns the number of names in this list
+	public int size() {
+		return numItems.get();
+	}
+
+	// Prints the items in this list in sequence from first to last, separated by commas.
+	// If other threads change the list while this runs, every name printed was in the
+	// list when it was reached, and every name that stays in the list is printed once.
+	public void printList() {
+		StringBuilder out=new StringBuilder();
+		walk(null, out);
+		System.out.print(out);
+	}
+
+	// Walks the list from the front, starting over whenever the slot it is on is
+	// popped off the list. Returns true as soon as it finds name, if name is not
+	// null; otherwise appends all the names, separated by commas, to out.
+	// A slot's successor can only change once the slot itself has been popped, and
+	// a popped slot's version is bumped before its name or next link change, so
+	// reading the next slot's version and then finding the current slot's version
+	// unchanged means both were in the list at that moment.
+	private boolean walk(String name, StringBuilder out) {
+		restart:
+		while(true){
+			if(out!=null){
+				out.setLength(0);
+			}
+			long h=front.get();
+			int ptr=(int)h;
+			if(ptr==-1){
+				return false;
+			}
+			int ver=version.get(ptr);
+			if(front.get()!=h){
+				continue;
+			}
+			while(true){
+				String n=names.get(ptr);
+				int nxt=next.get(ptr);
+				int nextVer=nxt==-1 ? 0 : version.get(nxt);
+				if(version.get(ptr)!=ver){
+					continue restart;
+				}
+				if(name!=null && name.equals(n)){
+					return true;
+				}
+				if(out!=null){
+					if(out.length()>0){
+						out.append(',');
+					}
+					out.append(n);
+				}
+				if(nxt==-1){
+					return false;
+				}
+				ptr=nxt;
+				ver=nextVer;
+			}
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package all;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+// Throughput of ConcurrentArrayLL against an ArrayLL behind one lock, the way it was shared
+// between threads before. Run with
+//     java all.ConcurrentBenchmark [maxThreads] [millisPerRun]
+// For 1, 2, 4 ... maxThreads (default 32) threads, every thread repeatedly makes a contains
+// call and then adds a name at the front and deletes the front name 8 times, for millisPerRun
+// (default 1000) milliseconds. Since every thread deletes only after adding, the list never
+// holds more than PREFILL names plus one per thread, so no add ever finds it full.
+// Reports the total operations per second for both lists.
+public class ConcurrentBenchmark {
+
+	private static final int CAPACITY = 1<<16;
+	private static final int PREFILL = 1000;
+	private static final int WARMUP_RUNS = 2;
+
+	// The operations being timed, so both lists go through the same loop
+	private interface Target {
+		boolean addFront(String name);
+		String deleteFront();
+		boolean contains(String name);
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int maxThreads = args.length>0 ? Integer.parseInt(args[0]) : 32;
+		int millis = args.length>1 ? Integer.parseInt(args[1]) : 1000;
+		System.out.println(Runtime.getRuntime().availableProcessors() + " processors");
+		System.out.printf("%-8s %20s %20s %8s%n", "threads", "synchronized ops/s", "lock-free ops/s", "ratio");
+		for(int threads=1; threads<=maxThreads; threads*=2){
+			double locked=0, lockFree=0;
+			for(int run=0; run<=WARMUP_RUNS; run++){
+				locked = run(synchronizedList(), threads, millis);
+				lockFree = run(concurrentList(), threads, millis);
+			}
+			System.out.printf("%-8d %20.0f %20.0f %8.2f%n", threads, locked, lockFree, lockFree/locked);
+		}
+	}
+
+	// An ArrayLL with every call made while holding the list's lock
+	private static Target synchronizedList() {
+		ArrayLL list = new ArrayLL(CAPACITY);
+		return new Target() {
+			public boolean addFront(String name) {
+				synchronized(list){
+					return list.addFront(name);
+				}
+			}
+			public String deleteFront() {
+				synchronized(list){
+					return list.deleteFront();
+				}
+			}
+			public boolean contains(String name) {
+				synchronized(list){
+					return list.contains(name);
+				}
+			}
+		};
+	}
+
+	private static Target concurrentList() {
+		ConcurrentArrayLL list = new ConcurrentArrayLL(CAPACITY);
+		return new Target() {
+			public boolean addFront(String name) {
+				return list.addFront(name);
+			}
+			public String deleteFront() {
+				return list.deleteFront();
+			}
+			public boolean contains(String name) {
+				return list.contains(name);
+			}
+		};
+	}
+
+	// Runs the threads against the list for the given time and returns operations per second
+	private static double run(Target list, int threads, int millis) throws InterruptedException {
+		for(int i=0; i<PREFILL; i++){
+			list.addFront("prefill" + i);
+		}
+		String[] names = new String[64];
+		for(int i=0; i<names.length; i++){
+			names[i] = "name" + i;
+		}
+		AtomicBoolean stop = new AtomicBoolean();
+		CountDownLatch start = new CountDownLatch(1);
+		long[] ops = new long[threads];
+		Thread[] workers = new Thread[threads];
+		for(int t=0; t<threads; t++){
+			int id = t;
+			workers[t] = new Thread(() -> {
+				try{
+					start.await();
+				}
+				catch(InterruptedException e){
+					return;
+				}
+				long n=0;
+				while(!stop.get()){
+					// a recently added name, so it is usually found near the front
+					list.contains(names[(int)(n & 63)]);
+					n++;
+					for(int i=0; i<8; i++){
+						if(!list.addFront(names[(int)(n & 63)])){
+							throw new IllegalStateException("List filled up during the benchmark");
+						}
+						list.deleteFront();
+						n+=2;
+					}
+				}
+				ops[id] = n;
+			});
+			workers[t].start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		Thread.sleep(millis);
+		stop.set(true);
+		for(Thread w : workers){
+			w.join();
+		}
+		long time = System.nanoTime() - begin;
+		long total = 0;
+		for(long n : ops){
+			total += n;
+		}
+		return total / (time/1e9);
+	}
+}
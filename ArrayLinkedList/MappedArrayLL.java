@@ -0,0 +1,254 @@
+package all;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+// Array linked list whose arrays live in a memory mapped file instead of on the heap.
+// Every change is made directly in the mapped file, so a list that was built once
+// can be opened again by any later process without reading or rebuilding anything.
+//
+// File layout, all ints:
+//   header    MAGIC, capacity, numItems, front, numAvail, stringsUsed, stringsCapacity, 0
+//   next      capacity ints, next slot in the list (or in nothing, -1)
+//   avail     capacity ints, stack of free slots, top at avail[numAvail-1]
+//   nameAt    capacity ints, offset of each slot's name in the string area
+//   strings   stringsCapacity bytes of names, each stored as
+//             [int bytes allocated][int bytes used][UTF-8 bytes]
+//
+// A freed slot keeps its name space, and the next name put in that slot reuses it
+// if it fits; otherwise new space is taken from the end of the string area, which
+// is doubled (by remapping the file) when it runs out.
+// Changes reach the file through the OS page cache; call force() to make sure
+// they are on disk.
+public class MappedArrayLL implements Closeable {
+
+	private static final int MAGIC = 0x41524c4c; // "ARLL"
+	private static final int HEADER = 32;
+	private static final int CAPACITY = 4;
+	private static final int NUM_ITEMS = 8;
+	private static final int FRONT = 12;
+	private static final int NUM_AVAIL = 16;
+	private static final int STRINGS_USED = 20;
+	private static final int STRINGS_CAPACITY = 24;
+
+	private final FileChannel channel;
+	private MappedByteBuffer buf;
+	private final int nextAt;
+	private final int availAt;
+	private final int nameAt;
+	private final int stringsAt;
+
+
+	private MappedArrayLL(FileChannel channel, int capacity, int stringsCapacity) throws IOException {
+		this.channel = channel;
+		nextAt = HEADER;
+		availAt = nextAt + 4*capacity;
+		nameAt = availAt + 4*capacity;
+		stringsAt = nameAt + 4*capacity;
+		buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long)stringsAt + stringsCapacity);
+	}
+
+	// Creates a new file (replacing any existing one) holding an empty list of length maxItems
+	public static MappedArrayLL create(Path file, int maxItems) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		int stringsCapacity = Math.max(64, 16*maxItems);
+		MappedArrayLL list = new MappedArrayLL(channel, maxItems, stringsCapacity);
+		MappedByteBuffer buf = list.buf;
+		buf.putInt(CAPACITY, maxItems);
+		buf.putInt(NUM_ITEMS, 0);
+		buf.putInt(FRONT, -1);
+		buf.putInt(NUM_AVAIL, maxItems);
+		buf.putInt(STRINGS_USED, 0);
+		buf.putInt(STRINGS_CAPACITY, stringsCapacity);
+		for(int i=0; i<maxItems; i++){
+			buf.putInt(list.availAt + 4*i, maxItems-1-i);
+			buf.putInt(list.nameAt + 4*i, -1);
+		}
+		buf.putInt(0, MAGIC);
+		return list;
+	}
+
+	// Opens a list previously made by create, in O(1) time regardless of its size.
+	// The header is read without mapping anything, since mapping a file opened for
+	// writing past its end would grow it; a file that is not exactly the size its
+	// header claims is rejected and left as it was.
+	public static MappedArrayLL open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		long size = channel.size();
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		while(size>=HEADER && header.hasRemaining()){
+			if(channel.read(header, header.position())<0){
+				break;
+			}
+		}
+		if(size<HEADER || header.hasRemaining() || header.getInt(0)!=MAGIC){
+			channel.close();
+			throw new IOException(file + " is not an array linked list file");
+		}
+		int capacity = header.getInt(CAPACITY);
+		int stringsCapacity = header.getInt(STRINGS_CAPACITY);
+		if(capacity<0 || stringsCapacity<0 || HEADER + 12L*capacity + stringsCapacity != size){
+			channel.close();
+			throw new IOException(file + " is damaged: its header does not match its size of " + size + " bytes");
+		}
+		return new MappedArrayLL(channel, capacity, stringsCapacity);
+	}
+
+	private int next(int slot) {
+		return buf.getInt(nextAt + 4*slot);
+	}
+
+	private void setNext(int slot, int value) {
+		buf.putInt(nextAt + 4*slot, value);
+	}
+
+	// Returns the number of names in this list
+	public int size() {
+		return buf.getInt(NUM_ITEMS);
+	}
+
+	// Adds a name to the front of this list and returns true,
+	// or returns false if the array is full
+	public boolean addFront(String name) throws IOException {
+		int numAvail=buf.getInt(NUM_AVAIL);
+		if(numAvail==0){
+			return false;
+		}
+		int slot=buf.getInt(availAt + 4*(numAvail-1));
+		putName(slot, name.getBytes(StandardCharsets.UTF_8));
+		setNext(slot, buf.getInt(FRONT));
+		buf.putInt(NUM_AVAIL, numAvail-1);
+		buf.putInt(NUM_ITEMS, size()+1);
+		buf.putInt(FRONT, slot);
+		return true;
+	}
+
+	// Deletes the name that is at the front of this list and returns it,
+	// or returns null if the list is empty
+	public String deleteFront() {
+		int slot=buf.getInt(FRONT);
+		if(slot==-1){
+			return null;
+		}
+		String temp=getName(slot);
+		buf.putInt(FRONT, next(slot));
+		free(slot);
+		return temp;
+	}
+
+	// Deletes the given name from this list, and returns true.
+	// Returns false if the name is not in the list.
+	public boolean delete(String name) {
+		byte[] target=name.getBytes(StandardCharsets.UTF_8);
+		int prev=-1;
+		for(int ptr=buf.getInt(FRONT); ptr!=-1; ptr=next(ptr)){
+			if(nameEquals(ptr, target)){
+				if(prev==-1){
+					buf.putInt(FRONT, next(ptr));
+				}
+				else{
+					setNext(prev, next(ptr));
+				}
+				free(ptr);
+				return true;
+			}
+			prev=ptr;
+		}
+		return false;
+	}
+
+	// Pushes an unlinked slot back on the avail stack
+	private void free(int slot) {
+		int numAvail=buf.getInt(NUM_AVAIL);
+		buf.putInt(availAt + 4*numAvail, slot);
+		buf.putInt(NUM_AVAIL, numAvail+1);
+		buf.putInt(NUM_ITEMS, size()-1);
+	}
+
+	// Checks if the given name is in this list, comparing the stored bytes
+	// directly so no strings are decoded along the way
+	public boolean contains(String name) {
+		byte[] target=name.getBytes(StandardCharsets.UTF_8);
+		for(int ptr=buf.getInt(FRONT); ptr!=-1; ptr=next(ptr)){
+			if(nameEquals(ptr, target)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Stores the name bytes for a slot, reusing the slot's old space if it is big enough
+	private void putName(int slot, byte[] bytes) throws IOException {
+		int at=buf.getInt(nameAt + 4*slot);
+		if(at==-1 || buf.getInt(stringsAt + at)<bytes.length){
+			int used=buf.getInt(STRINGS_USED);
+			int needed=used + 8 + bytes.length;
+			int stringsCapacity=buf.getInt(STRINGS_CAPACITY);
+			if(needed>stringsCapacity){
+				while(stringsCapacity<needed){
+					stringsCapacity*=2;
+				}
+				buf.force();
+				buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long)stringsAt + stringsCapacity);
+				buf.putInt(STRINGS_CAPACITY, stringsCapacity);
+			}
+			at=used;
+			buf.putInt(stringsAt + at, bytes.length);
+			buf.putInt(STRINGS_USED, needed);
+			buf.putInt(nameAt + 4*slot, at);
+		}
+		buf.putInt(stringsAt + at + 4, bytes.length);
+		buf.put(stringsAt + at + 8, bytes);
+	}
+
+	private String getName(int slot) {
+		int at=stringsAt + buf.getInt(nameAt + 4*slot);
+		byte[] bytes=new byte[buf.getInt(at + 4)];
+		buf.get(at + 8, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private boolean nameEquals(int slot, byte[] target) {
+		int at=stringsAt + buf.getInt(nameAt + 4*slot);
+		if(buf.getInt(at + 4)!=target.length){
+			return false;
+		}
+		at+=8;
+		for(int i=0; i<target.length; i++){
+			if(buf.get(at + i)!=target[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Prints the items in this list in sequence from first to last, separated by commas
+	public void printList() {
+		int front=buf.getInt(FRONT);
+		for(int ptr=front; ptr!=-1; ptr=next(ptr)){
+			if(ptr!=front){
+				System.out.print(",");
+			}
+			System.out.print(getName(ptr));
+		}
+	}
+
+	// Writes all changes made so far out to the storage device
+	public void force() {
+		buf.force();
+	}
+
+	// Forces the changes to disk and closes the file
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+}
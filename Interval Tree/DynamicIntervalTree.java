@@ -0,0 +1,338 @@
+package structures;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Interval tree that intervals can be inserted into and removed from one at a time, without
+ * rebuilding. It is an AVL tree of the intervals ordered on left end points (then on right end
+ * points), in which every node also keeps the largest right end point anywhere in its subtree.
+ * A query skips every subtree whose largest right end point is before the query, and every
+ * subtree to the right of a node that starts after the query. Listing the k intersecting
+ * intervals still takes O(min(n, (k+1) log n)) time in the worst case, since a left subtree that
+ * reaches the query may only hold intervals that start after it ends, but checking whether there
+ * is any intersecting interval takes O(log n) time, and so do insert and remove.
+ *
+ * Queries find the same intervals as an IntervalTree built from the same set of intervals,
+ * listed in order of left end points instead.
+ *
+ * @author runb-cs112
+ */
+public class DynamicIntervalTree {
+
+	/**
+	 * A node of the tree, holding all the intervals that have the same two end points
+	 */
+	private static class Node {
+
+		final int leftEndPoint, rightEndPoint;
+
+		/**
+		 * The intervals with these end points, in the order they were inserted
+		 */
+		final ArrayList<Interval> intervals = new ArrayList<Interval>(1);
+
+		Node leftChild, rightChild;
+
+		/**
+		 * Height of the subtree at this node, 1 for a leaf
+		 */
+		int height = 1;
+
+		/**
+		 * Largest right end point in the subtree at this node
+		 */
+		int maxRightEndPoint;
+
+		Node(Interval iv) {
+			leftEndPoint = iv.leftEndPoint;
+			rightEndPoint = iv.rightEndPoint;
+			maxRightEndPoint = rightEndPoint;
+			intervals.add(iv);
+		}
+	}
+
+	/**
+	 * The root of the tree
+	 */
+	private Node root;
+
+	/**
+	 * Number of intervals in the tree
+	 */
+	private int size;
+
+	/**
+	 * Constructs an empty tree.
+	 */
+	public DynamicIntervalTree() {
+	}
+
+	/**
+	 * Constructs a tree holding a set of intervals.
+	 *
+	 * @param intervals Array list of intervals to insert
+	 */
+	public DynamicIntervalTree(ArrayList<Interval> intervals) {
+		for(int i=0; i<intervals.size(); i++){
+			insert(intervals.get(i));
+		}
+	}
+
+	/**
+	 * Returns the number of intervals in this tree.
+	 *
+	 * @return Number of intervals
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if this tree has no intervals.
+	 *
+	 * @return True if there are no intervals
+	 */
+	public boolean isEmpty() {
+		return size==0;
+	}
+
+	/**
+	 * Inserts an interval into this tree, in O(log n) time.
+	 *
+	 * @param iv The interval to insert
+	 */
+	public void insert(Interval iv) {
+		root = insert(root, iv);
+		size++;
+	}
+
+	private static Node insert(Node N, Interval iv) {
+		if(N==null){
+			return new Node(iv);
+		}
+		int c = compare(iv.leftEndPoint, iv.rightEndPoint, N);
+		if(c==0){
+			N.intervals.add(iv);
+			return N;
+		}
+		if(c<0){
+			N.leftChild = insert(N.leftChild, iv);
+		}
+		else{
+			N.rightChild = insert(N.rightChild, iv);
+		}
+		return balance(N);
+	}
+
+	/**
+	 * Removes an interval from this tree, in O(log n) time. If the tree holds more than one
+	 * interval equal to iv, only one of them is removed.
+	 *
+	 * @param iv The interval to remove
+	 * @return True if an interval equal to iv was found and removed
+	 */
+	public boolean remove(Interval iv) {
+		Node N = root;
+		while(N!=null){
+			int c = compare(iv.leftEndPoint, iv.rightEndPoint, N);
+			if(c==0){
+				break;
+			}
+			N = c<0 ? N.leftChild : N.rightChild;
+		}
+		if(N==null || !N.intervals.remove(iv)){
+			return false;
+		}
+		if(N.intervals.isEmpty()){
+			root = delete(root, iv.leftEndPoint, iv.rightEndPoint);
+		}
+		size--;
+		return true;
+	}
+
+	/**
+	 * Unlinks the node with the given end points from the subtree at N
+	 */
+	private static Node delete(Node N, int left, int right) {
+		int c = compare(left, right, N);
+		if(c<0){
+			N.leftChild = delete(N.leftChild, left, right);
+		}
+		else if(c>0){
+			N.rightChild = delete(N.rightChild, left, right);
+		}
+		else{
+			if(N.leftChild==null){
+				return N.rightChild;
+			}
+			if(N.rightChild==null){
+				return N.leftChild;
+			}
+			// replace N with the smallest node of its right subtree
+			Node successor = N.rightChild;
+			while(successor.leftChild!=null){
+				successor = successor.leftChild;
+			}
+			successor.rightChild = deleteMin(N.rightChild);
+			successor.leftChild = N.leftChild;
+			N = successor;
+		}
+		return balance(N);
+	}
+
+	private static Node deleteMin(Node N) {
+		if(N.leftChild==null){
+			return N.rightChild;
+		}
+		N.leftChild = deleteMin(N.leftChild);
+		return balance(N);
+	}
+
+	/**
+	 * Compares end points with the end points of a node, left end points first
+	 */
+	private static int compare(int left, int right, Node N) {
+		if(left!=N.leftEndPoint){
+			return left<N.leftEndPoint ? -1 : 1;
+		}
+		if(right!=N.rightEndPoint){
+			return right<N.rightEndPoint ? -1 : 1;
+		}
+		return 0;
+	}
+
+	private static int height(Node N) {
+		return N==null ? 0 : N.height;
+	}
+
+	/**
+	 * Recomputes the height and largest right end point of N from its children
+	 */
+	private static void update(Node N) {
+		N.height = 1 + Math.max(height(N.leftChild), height(N.rightChild));
+		int max = N.rightEndPoint;
+		if(N.leftChild!=null && N.leftChild.maxRightEndPoint>max){
+			max = N.leftChild.maxRightEndPoint;
+		}
+		if(N.rightChild!=null && N.rightChild.maxRightEndPoint>max){
+			max = N.rightChild.maxRightEndPoint;
+		}
+		N.maxRightEndPoint = max;
+	}
+
+	/**
+	 * Updates N and rotates it if its subtrees differ in height by 2, returning the new root of
+	 * the subtree
+	 */
+	private static Node balance(Node N) {
+		update(N);
+		int diff = height(N.leftChild) - height(N.rightChild);
+		if(diff>1){
+			if(height(N.leftChild.leftChild) < height(N.leftChild.rightChild)){
+				N.leftChild = rotateLeft(N.leftChild);
+			}
+			return rotateRight(N);
+		}
+		if(diff<-1){
+			if(height(N.rightChild.rightChild) < height(N.rightChild.leftChild)){
+				N.rightChild = rotateRight(N.rightChild);
+			}
+			return rotateLeft(N);
+		}
+		return N;
+	}
+
+	private static Node rotateRight(Node N) {
+		Node L = N.leftChild;
+		N.leftChild = L.rightChild;
+		L.rightChild = N;
+		update(N);
+		update(L);
+		return L;
+	}
+
+	private static Node rotateLeft(Node N) {
+		Node R = N.rightChild;
+		N.rightChild = R.leftChild;
+		R.leftChild = N;
+		update(N);
+		update(R);
+		return R;
+	}
+
+	/**
+	 * Gets all intervals in this tree that intersect with a given interval, in
+	 * O(min(n, (k+1) log n)) time for k intersecting intervals.
+	 *
+	 * @param q The query interval for which intersections are to be found
+	 * @return Array list of all intersecting intervals; size is 0 if there are no intersections
+	 */
+	public ArrayList<Interval> findIntersectingIntervals(Interval q) {
+		ArrayList<Interval> resultList = new ArrayList<Interval>();
+		visit(root, q, null, resultList);
+		return resultList;
+	}
+
+	/**
+	 * Calls action for each interval in this tree that intersects with a given interval,
+	 * in the same order that findIntersectingIntervals lists them.
+	 *
+	 * @param q The query interval for which intersections are to be found
+	 * @param action Called once for each intersecting interval
+	 */
+	public void forEachIntersecting(Interval q, Consumer<? super Interval> action) {
+		visit(root, q, action, null);
+	}
+
+	/**
+	 * Checks if any interval in this tree intersects with a given interval, in O(log n) time.
+	 *
+	 * @param q The query interval
+	 * @return True if at least one interval intersects q
+	 */
+	public boolean anyIntersecting(Interval q) {
+		Node N = root;
+		while(N!=null && N.maxRightEndPoint>=q.leftEndPoint){
+			if(N.leftEndPoint<=q.rightEndPoint && N.rightEndPoint>=q.leftEndPoint){
+				return true;
+			}
+			// if anything on the left reaches q, the left subtree holds a hit, since all of
+			// it starts before N does; otherwise only the right subtree can
+			if(N.leftChild!=null && N.leftChild.maxRightEndPoint>=q.leftEndPoint){
+				N = N.leftChild;
+			}
+			else if(N.leftEndPoint<=q.rightEndPoint){
+				N = N.rightChild;
+			}
+			else{
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the intervals in the subtree at N that intersect with q, in order of left end points.
+	 */
+	private static void visit(Node N, Interval q, Consumer<? super Interval> action, ArrayList<Interval> into) {
+		while(N!=null && N.maxRightEndPoint>=q.leftEndPoint){
+			visit(N.leftChild, q, action, into);
+			if(N.leftEndPoint>q.rightEndPoint){
+				// N and everything to its right start after q ends
+				return;
+			}
+			if(N.rightEndPoint>=q.leftEndPoint){
+				for(int i=0; i<N.intervals.size(); i++){
+					if(action!=null){
+						action.accept(N.intervals.get(i));
+					}
+					else{
+						into.add(N.intervals.get(i));
+					}
+				}
+			}
+			N = N.rightChild;
+		}
+	}
+}
@@ -0,0 +1,350 @@
+package structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Read only copy of an interval tree, laid out in a few flat arrays instead of node objects and
+ * array lists. Queries find exactly the same intervals as the IntervalTree it was made from, in
+ * the same order, but read contiguous primitive arrays instead of following references from
+ * node to node and from list to interval.
+ *
+ * Only the nodes that hold intervals, and the nodes on the way to them, are kept; in a tree
+ * built from random intervals these are a small fraction of all the nodes, since most split
+ * values get no intervals. The kept nodes are numbered children first, so that every subtree
+ * is one run of numbers ending with its root, and node i has split value split[i] and children
+ * leftChild[i] and rightChild[i] (-1 for none). A node's left and right lists always hold the
+ * same intervals, so both slices of node i are at the same positions off[i] to off[i+1]-1 of
+ * <ul>
+ * <li>lo, the left end points of the node's intervals sorted on left end points,</li>
+ * <li>hi and id, the right end points and interval numbers of the node's intervals sorted on
+ * right end points.</li>
+ * </ul>
+ * Interval number k is intervals[k], and the intervals are numbered in the order of the left
+ * slices, so the left slice of node i is intervals[off[i]] to intervals[off[i+1]-1].
+ *
+ * Apart from the Interval objects themselves, this takes 16 bytes per interval and 16 bytes per
+ * kept node, where the tree takes two list entries per interval plus a node and two array lists
+ * (around 100 bytes) for every node, kept or not.
+ *
+ * @author runb-cs112
+ */
+public class FlatIntervalTree {
+
+	/**
+	 * Split value of each node
+	 */
+	private final float[] split;
+
+	/**
+	 * Children of each node, -1 for none
+	 */
+	private final int[] leftChild, rightChild;
+
+	/**
+	 * Start of each node's slices, with off[split.length] the total number of intervals
+	 */
+	private final int[] off;
+
+	/**
+	 * Number of the root node, -1 if no node holds any intervals
+	 */
+	private final int root;
+
+	/**
+	 * Left end points of the left slices
+	 */
+	private final int[] lo;
+
+	/**
+	 * Right end points of the right slices
+	 */
+	private final int[] hi;
+
+	/**
+	 * Interval numbers of the right slices
+	 */
+	private final int[] id;
+
+	/**
+	 * The intervals, in the order of the left slices
+	 */
+	private final Interval[] intervals;
+
+	/**
+	 * Stacks of nodes still to be visited by queries, one per thread, taken out while in use
+	 * as in IntervalTree
+	 */
+	private static final ThreadLocal<int[]> STACKS = ThreadLocal.withInitial(() -> new int[64]);
+
+	/**
+	 * Makes a flat copy of an interval tree. The tree is not changed, and later changes to it
+	 * are not seen by the copy.
+	 *
+	 * @param tree The interval tree
+	 * @throws IllegalArgumentException If a node's left and right lists do not hold the same
+	 * intervals
+	 */
+	public FlatIntervalTree(IntervalTree tree) {
+		int[] sizes = new int[2];
+		count(tree.getRoot(), sizes);
+		int nodes = sizes[0];
+		int total = sizes[1];
+
+		split = new float[nodes];
+		leftChild = new int[nodes];
+		rightChild = new int[nodes];
+		off = new int[nodes+1];
+		lo = new int[total];
+		hi = new int[total];
+		id = new int[total];
+		intervals = new Interval[total];
+
+		// sizes now holds the next node number and the next interval number
+		sizes[0] = 0;
+		sizes[1] = 0;
+		root = place(tree.getRoot(), sizes, new IdentityHashMap<Interval,Integer>());
+		off[nodes] = total;
+	}
+
+	/**
+	 * Adds the number of nodes to keep in the subtree at N to sizes[0], and the number of
+	 * intervals in them to sizes[1].
+	 *
+	 * @return True if the subtree holds any intervals
+	 */
+	private static boolean count(IntervalTreeNode N, int[] sizes) {
+		if(N==null){
+			return false;
+		}
+		boolean keep = count(N.leftChild, sizes) | count(N.rightChild, sizes);
+		int n = N.leftIntervals==null ? 0 : N.leftIntervals.size();
+		if(keep || n>0){
+			sizes[0]++;
+			sizes[1] += n;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Copies the kept nodes of the subtree at N, children first, into the arrays.
+	 *
+	 * @param next The next node number and the next interval number, advanced as they are used
+	 * @param number Work space for numbering a node's right slice
+	 * @return Number of N, or -1 if the subtree holds no intervals
+	 */
+	private int place(IntervalTreeNode N, int[] next, IdentityHashMap<Interval,Integer> number) {
+		if(N==null){
+			return -1;
+		}
+		int left = place(N.leftChild, next, number);
+		int right = place(N.rightChild, next, number);
+		ArrayList<Interval> LList = N.leftIntervals;
+		ArrayList<Interval> RList = N.rightIntervals;
+		int count = LList==null ? 0 : LList.size();
+		int rightCount = RList==null ? 0 : RList.size();
+		if(count!=rightCount){
+			throw new IllegalArgumentException("Node at split value " + N.splitValue + " has "
+					+ count + " left sorted and " + rightCount + " right sorted intervals");
+		}
+		if(left==-1 && right==-1 && count==0){
+			return -1;
+		}
+
+		int i = next[0]++;
+		int start = next[1];
+		next[1] += count;
+		split[i] = N.splitValue;
+		leftChild[i] = left;
+		rightChild[i] = right;
+		off[i] = start;
+		number.clear();
+		for(int k=0; k<count; k++){
+			Interval iv = LList.get(k);
+			intervals[start+k] = iv;
+			lo[start+k] = iv.leftEndPoint;
+			number.put(iv, start+k);
+		}
+		for(int k=0; k<count; k++){
+			Interval iv = RList.get(k);
+			Integer n = number.get(iv);
+			if(n==null){
+				throw new IllegalArgumentException("Node at split value " + N.splitValue
+						+ " has different left sorted and right sorted intervals");
+			}
+			hi[start+k] = iv.rightEndPoint;
+			id[start+k] = n;
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the number of intervals in this tree.
+	 *
+	 * @return Number of intervals
+	 */
+	public int size() {
+		return intervals.length;
+	}
+
+	/**
+	 * Gets all intervals in this tree that intersect with a given interval, in the same order
+	 * as IntervalTree.findIntersectingIntervals.
+	 *
+	 * @param q The query interval for which intersections are to be found
+	 * @return Array list of all intersecting intervals; size is 0 if there are no intersections
+	 */
+	public ArrayList<Interval> findIntersectingIntervals(Interval q) {
+		ArrayList<Interval> resultList = new ArrayList<Interval>();
+		visit(q, null, resultList);
+		return resultList;
+	}
+
+	/**
+	 * Calls action for each interval in this tree that intersects with a given interval,
+	 * in the same order that findIntersectingIntervals lists them, without allocating anything.
+	 *
+	 * @param q The query interval for which intersections are to be found
+	 * @param action Called once for each intersecting interval
+	 */
+	public void forEachIntersecting(Interval q, Consumer<? super Interval> action) {
+		visit(q, action, null);
+	}
+
+	/**
+	 * Counts the intervals in this tree that intersect with a given interval, without listing
+	 * them; at each node the count comes from a binary search of one of its slices.
+	 *
+	 * @param q The query interval
+	 * @return Number of intersecting intervals
+	 */
+	public long countIntersecting(Interval q) {
+		long count = 0;
+		int[] stack = takeStack();
+		try{
+			int top=0;
+			if(root!=-1){
+				stack[top++]=root;
+			}
+			while(top>0){
+				int i = stack[--top];
+				if(top+2>stack.length){
+					stack = Arrays.copyOf(stack, 2*stack.length);
+				}
+				float SplitVal = split[i];
+				if(q.contains(SplitVal)){
+					count += off[i+1]-off[i];
+					top = push(stack, top, leftChild[i]);
+					top = push(stack, top, rightChild[i]);
+				}
+				else if(SplitVal < q.leftEndPoint){
+					// right end points are sorted, count those at or past q's left end point
+					int a=off[i], b=off[i+1];
+					while(a<b){
+						int mid=(a+b)>>>1;
+						if(hi[mid]<q.leftEndPoint){
+							a=mid+1;
+						}
+						else{
+							b=mid;
+						}
+					}
+					count += off[i+1]-a;
+					top = push(stack, top, rightChild[i]);
+				}
+				else if(SplitVal > q.rightEndPoint){
+					// left end points are sorted, count those at or before q's right end point
+					int a=off[i], b=off[i+1];
+					while(a<b){
+						int mid=(a+b)>>>1;
+						if(lo[mid]<=q.rightEndPoint){
+							a=mid+1;
+						}
+						else{
+							b=mid;
+						}
+					}
+					count += a-off[i];
+					top = push(stack, top, leftChild[i]);
+				}
+			}
+		}
+		finally{
+			STACKS.set(stack);
+		}
+		return count;
+	}
+
+	/**
+	 * Walks the nodes the way IntervalTree.visit does, right subtree before left.
+	 */
+	private void visit(Interval q, Consumer<? super Interval> action, ArrayList<Interval> into) {
+		int[] stack = takeStack();
+		try{
+			int top=0;
+			if(root!=-1){
+				stack[top++]=root;
+			}
+			while(top>0){
+				int i = stack[--top];
+				if(top+2>stack.length){
+					stack = Arrays.copyOf(stack, 2*stack.length);
+				}
+				float SplitVal = split[i];
+				if(q.contains(SplitVal)){
+					for(int k=off[i]; k<off[i+1]; k++){
+						emit(intervals[k], action, into);
+					}
+					top = push(stack, top, leftChild[i]);
+					top = push(stack, top, rightChild[i]);
+				}
+				else if(SplitVal < q.leftEndPoint){
+					for(int k=off[i+1]-1; k>=off[i] && hi[k]>=q.leftEndPoint; k--){
+						emit(intervals[id[k]], action, into);
+					}
+					top = push(stack, top, rightChild[i]);
+				}
+				else if(SplitVal > q.rightEndPoint){
+					for(int k=off[i]; k<off[i+1] && lo[k]<=q.rightEndPoint; k++){
+						emit(intervals[k], action, into);
+					}
+					top = push(stack, top, leftChild[i]);
+				}
+			}
+		}
+		finally{
+			STACKS.set(stack);
+		}
+	}
+
+	/**
+	 * Pushes a node if there is one, and returns the new top of the stack
+	 */
+	private static int push(int[] stack, int top, int node) {
+		if(node!=-1){
+			stack[top++]=node;
+		}
+		return top;
+	}
+
+	private static int[] takeStack() {
+		int[] stack = STACKS.get();
+		if(stack==null){
+			return new int[64];
+		}
+		STACKS.set(null);
+		return stack;
+	}
+
+	private static void emit(Interval iv, Consumer<? super Interval> action, ArrayList<Interval> into) {
+		if(action!=null){
+			action.accept(iv);
+		}
+		else{
+			into.add(iv);
+		}
+	}
+}
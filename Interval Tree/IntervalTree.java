@@ -1,6 +1,11 @@
 package structures;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
 
 /**
  * Encapsulates an interval tree.
@@ -14,6 +19,18 @@ public class IntervalTree {
 	 */
 	IntervalTreeNode root;
 	
+	/**
+	 * Left end points and right end points of all the intervals the tree was constructed
+	 * with, each sorted, for counting intersecting intervals without walking the tree
+	 */
+	private int[] sortedLeftEndPoints, sortedRightEndPoints;
+	
+	/**
+	 * Below this many end points or intervals, the parallel build does the rest of
+	 * a subtree in the current thread
+	 */
+	private static final int PARALLEL_THRESHOLD = 1 << 13;
+	
 	/**
 	 * Constructs entire interval tree from set of input intervals. Constructing the tree
 	 * means building the interval tree structure and mapping the intervals to the nodes.
@@ -21,28 +38,56 @@ public class IntervalTree {
 	 * @param intervals Array list of intervals for which the tree is constructed
 	 */
 	public IntervalTree(ArrayList<Interval> intervals) {
+		this(intervals, false);
+	}
+	
+	/**
+	 * Constructs entire interval tree from set of input intervals, optionally using all cores.
+	 * In parallel, the left and right sorts run at the same time, the tree structure is built
+	 * by splitting the end points in halves (see buildTreeNodesParallel), and the intervals are
+	 * mapped by splitting them between subtrees (see mapIntervalsToTreeParallel). Queries on
+	 * the result give the same intervals either way, though not always in the same order.
+	 * 
+	 * @param intervals Array list of intervals for which the tree is constructed
+	 * @param parallel True to build the tree in parallel on the common fork-join pool
+	 */
+	public IntervalTree(ArrayList<Interval> intervals, boolean parallel) {
 		
 		// make a copy of intervals to use for right sorting
-		ArrayList<Interval> intervalsRight = new ArrayList<Interval>(intervals.size());
-		for (Interval iv : intervals) {
-			intervalsRight.add(iv);
-		}
+		ArrayList<Interval> intervalsRight = new ArrayList<Interval>(intervals);
 		
 		// rename input intervals for left sorting
 		ArrayList<Interval> intervalsLeft = intervals;
 		
 		// sort intervals on left and right end points
-		Sorter.sortIntervals(intervalsLeft, 'l');
-		Sorter.sortIntervals(intervalsRight,'r');
+		if (parallel) {
+			ForkJoinTask<?> rightSort = ForkJoinTask.adapt(() -> Sorter.sortIntervals(intervalsRight, 'r', true)).fork();
+			Sorter.sortIntervals(intervalsLeft, 'l', true);
+			rightSort.join();
+		} else {
+			Sorter.sortIntervals(intervalsLeft, 'l');
+			Sorter.sortIntervals(intervalsRight,'r');
+		}
 		
-		// get sorted list of end points without duplicates
-		ArrayList<Integer> sortedEndPoints = Sorter.getSortedEndPoints(intervalsLeft, intervalsRight);
+		// get sorted array of end points without duplicates
+		int[] sortedEndPoints = Sorter.getSortedEndPointsArray(intervalsLeft, intervalsRight);
 		
-		// build the tree nodes
-		root = buildTreeNodes(sortedEndPoints);
+		// keep all the end points, with duplicates, for countIntersecting
+		sortedLeftEndPoints = new int[intervalsLeft.size()];
+		sortedRightEndPoints = new int[intervalsRight.size()];
+		for(int i=0; i<sortedLeftEndPoints.length; i++){
+			sortedLeftEndPoints[i] = intervalsLeft.get(i).leftEndPoint;
+			sortedRightEndPoints[i] = intervalsRight.get(i).rightEndPoint;
+		}
 		
-		// map intervals to the tree nodes
-		mapIntervalsToTree(intervalsLeft, intervalsRight);
+		// build the tree nodes, and map intervals to the tree nodes
+		if (parallel) {
+			root = buildTreeNodesParallel(sortedEndPoints);
+			mapIntervalsToTreeParallel(intervalsLeft, intervalsRight);
+		} else {
+			root = buildTreeNodes(sortedEndPoints);
+			mapIntervalsToTree(intervalsLeft, intervalsRight);
+		}
 	}
 	
 	/**
@@ -91,6 +136,48 @@ public class IntervalTree {
 		
 	}
 	
+	/**
+	 * Builds the interval tree structure given a sorted array of end points. Makes the same
+	 * tree as buildTreeNodes(ArrayList), pairing up the nodes of each level from left to right
+	 * (with a leftover node moving up to the end of the next level), but keeps the levels in
+	 * one array instead of a queue of boxed end points.
+	 * 
+	 * @param endPoints Sorted array of end points, without duplicates
+	 * @return Root of the tree structure, or null if there are no end points
+	 */
+	public static IntervalTreeNode buildTreeNodes(int[] endPoints) {
+		
+		IntervalTreeNode[] level = new IntervalTreeNode[endPoints.length];
+		for(int i=0; i<endPoints.length; i++){
+			level[i] = new IntervalTreeNode(endPoints[i],endPoints[i],endPoints[i]);
+		}
+		int size = level.length;
+		if(size==0){
+			return null;
+		}
+		
+		while(size>1){
+			int next=0;
+			for(int i=0; i+1<size; i+=2){
+				IntervalTreeNode T1 = level[i];
+				IntervalTreeNode T2 = level[i+1];
+				float x = (T1.maxSplitValue+T2.minSplitValue)/2;
+				IntervalTreeNode N = new IntervalTreeNode(x,T1.minSplitValue,T2.maxSplitValue);
+				N.leftIntervals=new ArrayList<Interval>();
+				N.rightIntervals=new ArrayList<Interval>();
+				N.leftChild=T1;
+				N.rightChild=T2;
+				level[next++]=N;
+			}
+			if(size%2==1){
+				level[next++]=level[size-1];
+			}
+			size=next;
+		}
+		return level[0];
+		
+	}
+	
 	/**
 	 * Maps a set of intervals to the nodes of this interval tree. 
 	 * 
@@ -107,49 +194,193 @@ public class IntervalTree {
 		
 		
 		for(int i=0; i<leftSortedIntervals.size(); i++){
-			IntervalTreeNode r = this.root;
-			while(r!=null){
-				if(leftSortedIntervals.get(i).contains(r.splitValue)){
+			mapInterval(this.root, leftSortedIntervals.get(i), 'l');
+		}
+		
+		for(int i=0; i<rightSortedIntervals.size(); i++){
+			mapInterval(this.root, rightSortedIntervals.get(i), 'r');
+		}
+		
+	}	
+	
+	/**
+	 * Adds an interval to the left or right list of the highest node, in the subtree at r,
+	 * whose split value it contains.
+	 * 
+	 * @param r Root of the subtree
+	 * @param iv Interval to add
+	 * @param lr If 'l', the interval is added to leftIntervals; if 'r', to rightIntervals
+	 */
+	private static void mapInterval(IntervalTreeNode r, Interval iv, char lr) {
+		while(r!=null){
+			if(iv.contains(r.splitValue)){
+				if(lr=='l'){
 					if(r.leftIntervals==null){
 						r.leftIntervals = new ArrayList<Interval>();
 					}
-					r.leftIntervals.add(leftSortedIntervals.get(i));
-					break;
-				}
-				if(r.splitValue>leftSortedIntervals.get(i).rightEndPoint){
-					r=r.leftChild;
+					r.leftIntervals.add(iv);
 				}
 				else{
-					r=r.rightChild;
+					if(r.rightIntervals==null){
+						r.rightIntervals = new ArrayList<Interval>();
+					}
+					r.rightIntervals.add(iv);
 				}
+				return;
+			}
+			if(r.splitValue>iv.rightEndPoint){
+				r=r.leftChild;
+			}
+			else{
+				r=r.rightChild;
 			}
 		}
+	}
+	
+	/**
+	 * Builds the interval tree structure given a sorted array of end points, in parallel.
+	 * The end points are split in halves, and the two halves are built at the same time into
+	 * the left and right subtrees, down to PARALLEL_THRESHOLD end points.
+	 * 
+	 * @param endPoints Sorted array of end points, without duplicates
+	 * @return Root of the tree structure, or null if there are no end points
+	 */
+	public static IntervalTreeNode buildTreeNodesParallel(int[] endPoints) {
+		if (endPoints.length == 0) {
+			return null;
+		}
+		return ForkJoinPool.commonPool().invoke(new BuildTask(endPoints, 0, endPoints.length-1));
+	}
+	
+	/**
+	 * Builds the subtree for endPoints[lo..hi], splitting it in halves
+	 */
+	private static class BuildTask extends RecursiveTask<IntervalTreeNode> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final int[] endPoints;
+		private final int lo, hi;
+		
+		BuildTask(int[] endPoints, int lo, int hi) {
+			this.endPoints = endPoints;
+			this.lo = lo;
+			this.hi = hi;
+		}
 		
+		protected IntervalTreeNode compute() {
+			if (hi-lo < PARALLEL_THRESHOLD) {
+				return build(endPoints, lo, hi);
+			}
+			int mid = (lo+hi) >>> 1;
+			BuildTask left = new BuildTask(endPoints, lo, mid);
+			left.fork();
+			IntervalTreeNode right = new BuildTask(endPoints, mid+1, hi).compute();
+			return join(left.join(), right);
+		}
 		
-		for(int i=0; i<rightSortedIntervals.size(); i++){
-			IntervalTreeNode r = this.root;
-			while(r!=null){
-				if(rightSortedIntervals.get(i).contains(r.splitValue)){
-					if(r.rightIntervals==null){
-						r.rightIntervals = new ArrayList<Interval>();
-					}
-					r.rightIntervals.add(rightSortedIntervals.get(i));
-					break;
-				}
-				if(r.splitValue>rightSortedIntervals.get(i).rightEndPoint){
-					r=r.leftChild;
-				}
-				else{
-					r=r.rightChild;
-				}
+		private static IntervalTreeNode build(int[] endPoints, int lo, int hi) {
+			if (lo == hi) {
+				return new IntervalTreeNode(endPoints[lo], endPoints[lo], endPoints[lo]);
 			}
-			
+			int mid = (lo+hi) >>> 1;
+			return join(build(endPoints, lo, mid), build(endPoints, mid+1, hi));
 		}
 		
+		/**
+		 * Makes the parent of two subtrees, the same way buildTreeNodes does
+		 */
+		private static IntervalTreeNode join(IntervalTreeNode T1, IntervalTreeNode T2) {
+			float x = (T1.maxSplitValue+T2.minSplitValue)/2;
+			IntervalTreeNode N = new IntervalTreeNode(x,T1.minSplitValue,T2.maxSplitValue);
+			N.leftIntervals=new ArrayList<Interval>();
+			N.rightIntervals=new ArrayList<Interval>();
+			N.leftChild=T1;
+			N.rightChild=T2;
+			return N;
+		}
+	}
+	
+	/**
+	 * Maps a set of intervals to the nodes of this interval tree, in parallel. At each node,
+	 * the intervals are split into those that contain the node's split value, which stay at
+	 * the node, and those that go to the left or right subtree; the two subtrees are then
+	 * mapped at the same time. Splitting keeps the sorted order, so every node gets the same
+	 * lists as with mapIntervalsToTree.
+	 * 
+	 * @param leftSortedIntervals Array list of intervals sorted according to left endpoints
+	 * @param rightSortedIntervals Array list of intervals sorted according to right endpoints
+	 */
+	public void mapIntervalsToTreeParallel(ArrayList<Interval> leftSortedIntervals, ArrayList<Interval> rightSortedIntervals) {
+		if (root == null || leftSortedIntervals == null || rightSortedIntervals == null) {
+			return;
+		}
+		ForkJoinPool.commonPool().invoke(new MapTask(root,
+				leftSortedIntervals.toArray(new Interval[0]), rightSortedIntervals.toArray(new Interval[0])));
+	}
+	
+	/**
+	 * Maps a set of intervals, given in both sorted orders, to the subtree at a node
+	 */
+	private static class MapTask extends RecursiveAction {
 		
+		private static final long serialVersionUID = 1L;
 		
+		private final IntervalTreeNode node;
+		private final Interval[] left, right;
 		
-	}	
+		MapTask(IntervalTreeNode node, Interval[] left, Interval[] right) {
+			this.node = node;
+			this.left = left;
+			this.right = right;
+		}
+		
+		protected void compute() {
+			if (node == null || left.length == 0) {
+				return;
+			}
+			if (left.length < PARALLEL_THRESHOLD) {
+				for (Interval iv : left) {
+					mapInterval(node, iv, 'l');
+				}
+				for (Interval iv : right) {
+					mapInterval(node, iv, 'r');
+				}
+				return;
+			}
+			Interval[][] l = split(left, 'l');
+			Interval[][] r = split(right, 'r');
+			invokeAll(new MapTask(node.leftChild, l[0], r[0]), new MapTask(node.rightChild, l[2], r[2]));
+		}
+		
+		/**
+		 * Splits intervals, in order, into those for the left subtree, this node, and the
+		 * right subtree; the ones for this node are added to its left or right list
+		 */
+		private Interval[][] split(Interval[] intervals, char lr) {
+			int toLeft = 0, here = 0;
+			for (Interval iv : intervals) {
+				if (iv.contains(node.splitValue)) {
+					here++;
+				} else if (node.splitValue > iv.rightEndPoint) {
+					toLeft++;
+				}
+			}
+			Interval[][] parts = {new Interval[toLeft], new Interval[here], new Interval[intervals.length-toLeft-here]};
+			int[] next = new int[3];
+			for (Interval iv : intervals) {
+				int part = iv.contains(node.splitValue) ? 1 : node.splitValue > iv.rightEndPoint ? 0 : 2;
+				parts[part][next[part]++] = iv;
+			}
+			ArrayList<Interval> list = new ArrayList<Interval>(Arrays.asList(parts[1]));
+			if (lr == 'l') {
+				node.leftIntervals = list;
+			} else {
+				node.rightIntervals = list;
+			}
+			return parts;
+		}
+	}
 	
 	
 	
@@ -161,60 +392,372 @@ public class IntervalTree {
 	 */
 	public ArrayList<Interval> findIntersectingIntervals(Interval q) {
 		
-		return find(root,q);
+		ArrayList<Interval> resultList = new ArrayList<Interval>();
+		findIntersectingIntervals(q, resultList);
+		return resultList;
 	}
 	
-	public ArrayList<Interval> find(IntervalTreeNode R, Interval q){
-		
-		
+	/**
+	 * Adds all intervals in this interval tree that intersect with a given interval to a list.
+	 * Nothing is allocated apart from what the list itself needs, so with a list that is
+	 * cleared and reused between queries, a query allocates nothing at all.
+	 * 
+	 * @param q The query interval for which intersections are to be found
+	 * @param into List that the intersecting intervals are added to
+	 */
+	public void findIntersectingIntervals(Interval q, List<Interval> into) {
+		visit(root, q, null, into);
+	}
+	
+	/**
+	 * Calls action for each interval in this interval tree that intersects with a given interval,
+	 * in the same order that findIntersectingIntervals lists them, without allocating anything.
+	 * 
+	 * @param q The query interval for which intersections are to be found
+	 * @param action Called once for each intersecting interval
+	 */
+	public void forEachIntersecting(Interval q, Consumer<? super Interval> action) {
+		visit(root, q, action, null);
+	}
+	
+	/**
+	 * Calls action for each interval in this interval tree that contains a given point.
+	 * 
+	 * @param point The point
+	 * @param action Called once for each interval that contains point
+	 */
+	public void stab(int point, Consumer<? super Interval> action) {
+		visit(root, new Interval(point, point, null), action, null);
+	}
+	
+	/**
+	 * Gets all intervals in this interval tree that contain a given point.
+	 * 
+	 * @param point The point
+	 * @return Array list of all intervals that contain point; size is 0 if there are none
+	 */
+	public ArrayList<Interval> stab(int point) {
 		ArrayList<Interval> resultList = new ArrayList<Interval>();
+		visit(root, new Interval(point, point, null), null, resultList);
+		return resultList;
+	}
+	
+	/**
+	 * Counts the intervals in this interval tree that intersect with a given interval, without
+	 * listing them or walking the tree, in O(log n) time however many intervals intersect it.
+	 * An interval misses q only if it ends before q starts or starts after q ends, and never
+	 * both, so the count is the number of intervals starting at or before q's right end point
+	 * less the number ending before q's left end point, both found by binary search of the
+	 * sorted end points of the intervals the tree was constructed with.
+	 * 
+	 * @param q The query interval
+	 * @return Number of intersecting intervals
+	 */
+	public long countIntersecting(Interval q) {
+		return countAtMost(sortedLeftEndPoints, q.rightEndPoint)
+				- countAtMost(sortedRightEndPoints, q.leftEndPoint-1L);
+	}
+	
+	/**
+	 * Checks if any interval in this interval tree intersects with a given interval, in
+	 * O(log n) time, the same way as countIntersecting.
+	 * 
+	 * @param q The query interval
+	 * @return True if at least one interval intersects q
+	 */
+	public boolean anyIntersecting(Interval q) {
+		return countIntersecting(q)>0;
+	}
+	
+	/**
+	 * Returns the number of values in a sorted array that are at most x
+	 */
+	private static int countAtMost(int[] sorted, long x) {
+		int lo=0, hi=sorted.length;
+		while(lo<hi){
+			int mid=(lo+hi)>>>1;
+			if(sorted[mid]<=x){
+				lo=mid+1;
+			}
+			else{
+				hi=mid;
+			}
+		}
+		return lo;
+	}
+	
+	/**
+	 * Below this many queries, a batch of queries is not split up any further to run in parallel
+	 */
+	private static final int BATCH_THRESHOLD = 256;
+	
+	/**
+	 * Gets the intervals that intersect each of a batch of query intervals. The queries are sorted
+	 * on their left end points and walk the tree together, so that each node's lists are looked at
+	 * once for all the queries that reach it rather than once per query, and separate chunks of
+	 * the sorted queries run in parallel on the common fork-join pool.
+	 * 
+	 * @param queries The query intervals
+	 * @return For each query, in the same order as queries, the array list of intersecting intervals,
+	 * listed in the same order as findIntersectingIntervals(Interval) would list them
+	 */
+	public List<ArrayList<Interval>> findIntersectingIntervals(List<Interval> queries) {
 		
-		if(R==null){
-			return resultList;
+		int n = queries.size();
+		Interval[] q = queries.toArray(new Interval[n]);
+		List<ArrayList<Interval>> results = new ArrayList<ArrayList<Interval>>(n);
+		for(int i=0; i<n; i++){
+			results.add(new ArrayList<Interval>());
 		}
 		
-		float SplitVal = R.splitValue;
+		// query indexes sorted on left end points, packed with the end point as for sorting intervals
+		long[] keys = new long[n];
+		for(int i=0; i<n; i++){
+			keys[i] = ((long)q[i].leftEndPoint << 32) | i;
+		}
+		Arrays.sort(keys);
+		int[] order = new int[n];
+		for(int i=0; i<n; i++){
+			order[i] = (int)keys[i];
+		}
 		
-		if(R.leftIntervals==null){
-			R.leftIntervals=new ArrayList<Interval>();
-		} 
-		ArrayList<Interval> LList = R.leftIntervals;
+		int chunk = Math.max(BATCH_THRESHOLD, n / (4*ForkJoinPool.getCommonPoolParallelism()));
+		ForkJoinPool.commonPool().invoke(new BatchTask(root, q, order, 0, n, chunk, results));
+		return results;
+	}
+	
+	/**
+	 * Runs the queries order[lo..hi-1], splitting them in halves down to chunk queries
+	 */
+	private static class BatchTask extends RecursiveAction {
 		
-		if(R.rightIntervals==null){
-			R.rightIntervals=new ArrayList<Interval>();
-		} 
-		ArrayList<Interval> RList = R.rightIntervals;
+		private static final long serialVersionUID = 1L;
 		
-		IntervalTreeNode Lsub = R.leftChild;
-		IntervalTreeNode Rsub = R.rightChild;
+		private final IntervalTreeNode root;
+		private final Interval[] queries;
+		private final int[] order;
+		private final int lo, hi, chunk;
+		private final List<ArrayList<Interval>> results;
 		
+		BatchTask(IntervalTreeNode root, Interval[] queries, int[] order, int lo, int hi, int chunk, List<ArrayList<Interval>> results) {
+			this.root = root;
+			this.queries = queries;
+			this.order = order;
+			this.lo = lo;
+			this.hi = hi;
+			this.chunk = chunk;
+			this.results = results;
+		}
 		
-		if(q.contains(SplitVal)){
-			for(int i=0; i<LList.size(); i++){
-				resultList.add(LList.get(i));
+		protected void compute() {
+			if (hi-lo <= chunk) {
+				batch(root, queries, Arrays.copyOfRange(order, lo, hi), hi-lo, results);
+				return;
 			}
-			resultList.addAll(find(Rsub,q));
-			resultList.addAll(find(Lsub,q));
+			int mid = (lo+hi) >>> 1;
+			invokeAll(new BatchTask(root, queries, order, lo, mid, chunk, results),
+					new BatchTask(root, queries, order, mid, hi, chunk, results));
+		}
+	}
+	
+	/**
+	 * Finds the intervals in the subtree at N that intersect each of the first count queries in
+	 * sub, which are sorted on left end points. The queries whose left end points are past the
+	 * split value are a suffix of sub; they share one forward scan of the node's right sorted list.
+	 * The others each find their prefix of the node's left sorted list by binary search. Then the
+	 * right subtree is searched, then the left, as for a single query.
+	 */
+	private static void batch(IntervalTreeNode N, Interval[] queries, int[] sub, int count, List<ArrayList<Interval>> results) {
+		
+		if(N==null || count==0){
+			return;
 		}
-		else if(SplitVal < q.leftEndPoint){
-			int i = RList.size()-1;
-			while(i>=0 && RList.get(i).intersects(q)){
-				resultList.add(RList.get(i));
-				i--;
+		float SplitVal = N.splitValue;
+		ArrayList<Interval> LList = N.leftIntervals;
+		ArrayList<Interval> RList = N.rightIntervals;
+		
+		// queries [0, right) have left end points at or before the split value
+		int right = 0;
+		while(right<count && !(SplitVal < queries[sub[right]].leftEndPoint)){
+			right++;
+		}
+		
+		// queries [0, right) that also reach the split value go both ways
+		int[] toRight = new int[count];
+		int nRight = 0;
+		for(int k=0; k<right; k++){
+			Interval q = queries[sub[k]];
+			ArrayList<Interval> result = results.get(sub[k]);
+			if(q.contains(SplitVal)){
+				if(LList!=null){
+					result.addAll(LList);
+				}
+				toRight[nRight++] = sub[k];
 			}
-			resultList.addAll(find(Rsub,q));
+			else if(LList!=null){
+				// q is left of the split value: the intervals starting at or before q ends intersect it
+				int end = upperBound(LList, q.rightEndPoint);
+				for(int i=0; i<end; i++){
+					result.add(LList.get(i));
+				}
+			}
+		}
+		
+		// queries [right, count) are right of the split value, with growing left end points, so
+		// the first interval in the right sorted list that reaches each one only moves forward
+		int start = 0;
+		for(int k=right; k<count; k++){
+			Interval q = queries[sub[k]];
+			ArrayList<Interval> result = results.get(sub[k]);
+			if(RList!=null){
+				while(start<RList.size() && RList.get(start).rightEndPoint<q.leftEndPoint){
+					start++;
+				}
+				for(int i=RList.size()-1; i>=start; i--){
+					result.add(RList.get(i));
+				}
+			}
+			toRight[nRight++] = sub[k];
 		}
-		else if(SplitVal > q.rightEndPoint){
-			int i=0;
-			while(i<LList.size() && LList.get(i).intersects(q)){
-				resultList.add(LList.get(i));
-				i++;
+		
+		batch(N.rightChild, queries, toRight, nRight, results);
+		batch(N.leftChild, queries, sub, right, results);
+	}
+	
+	/**
+	 * Returns the number of intervals in a list sorted on left end points whose left end point
+	 * is at most x
+	 */
+	private static int upperBound(ArrayList<Interval> list, int x) {
+		int lo=0, hi=list.size();
+		while(lo<hi){
+			int mid=(lo+hi)>>>1;
+			if(list.get(mid).leftEndPoint<=x){
+				lo=mid+1;
+			}
+			else{
+				hi=mid;
 			}
-			resultList.addAll(find(Lsub,q));
 		}
+		return lo;
+	}
+	
+	/**
+	 * Gets all intervals in the subtree at R that intersect with a given interval.
+	 * 
+	 * @param R Root of the subtree
+	 * @param q The query interval for which intersections are to be found
+	 * @return Array list of all intersecting intervals; size is 0 if there are no intersections
+	 */
+	public ArrayList<Interval> find(IntervalTreeNode R, Interval q){
+		
+		ArrayList<Interval> resultList = new ArrayList<Interval>();
+		visit(R, q, null, resultList);
 		return resultList;
+	}
+	
+	/**
+	 * Stacks of nodes still to be visited by queries, one per thread so that queries can run
+	 * in several threads at once. A query takes its thread's stack out while it runs, so a
+	 * query made from inside a visitor gets a fresh stack of its own.
+	 */
+	private static final ThreadLocal<IntervalTreeNode[]> STACKS = ThreadLocal.withInitial(() -> new IntervalTreeNode[64]);
+	
+	/**
+	 * Finds the intervals in the subtree at R that intersect with q, walking the tree with an
+	 * explicit stack instead of recursion. At a node whose split value is in q, all its intervals
+	 * intersect q and both subtrees are searched; otherwise q is entirely to one side of the split
+	 * value, and only the intervals reaching far enough towards q (a prefix of the node's sorted
+	 * list) intersect it, and only that side's subtree is searched. The right subtree is searched
+	 * before the left, as the recursive version did.
+	 * 
+	 * @param R Root of the subtree
+	 * @param q The query interval
+	 * @param action If not null, called for each intersecting interval
+	 * @param into If action is null, list that each intersecting interval is added to
+	 */
+	private static void visit(IntervalTreeNode R, Interval q, Consumer<? super Interval> action, List<Interval> into) {
 		
+		if(R==null){
+			return;
+		}
+		IntervalTreeNode[] stack = takeStack();
 		
+		try{
+			int top=0;
+			stack[top++]=R;
+			while(top>0){
+				IntervalTreeNode N = stack[--top];
+				if(top+2>stack.length){
+					stack = Arrays.copyOf(stack, 2*stack.length);
+				}
+				float SplitVal = N.splitValue;
+				ArrayList<Interval> LList = N.leftIntervals;
+				ArrayList<Interval> RList = N.rightIntervals;
+				
+				if(q.contains(SplitVal)){
+					if(LList!=null){
+						for(int i=0; i<LList.size(); i++){
+							emit(LList.get(i), action, into);
+						}
+					}
+					if(N.leftChild!=null){
+						stack[top++]=N.leftChild;
+					}
+					if(N.rightChild!=null){
+						stack[top++]=N.rightChild;
+					}
+				}
+				else if(SplitVal < q.leftEndPoint){
+					if(RList!=null){
+						int i = RList.size()-1;
+						while(i>=0 && RList.get(i).intersects(q)){
+							emit(RList.get(i), action, into);
+							i--;
+						}
+					}
+					if(N.rightChild!=null){
+						stack[top++]=N.rightChild;
+					}
+				}
+				else if(SplitVal > q.rightEndPoint){
+					if(LList!=null){
+						int i=0;
+						while(i<LList.size() && LList.get(i).intersects(q)){
+							emit(LList.get(i), action, into);
+							i++;
+						}
+					}
+					if(N.leftChild!=null){
+						stack[top++]=N.leftChild;
+					}
+				}
+			}
+		}
+		finally{
+			STACKS.set(stack);
+		}
+	}
+	
+	/**
+	 * Takes this thread's stack out for a query, or makes a fresh one if it is already in use
+	 */
+	private static IntervalTreeNode[] takeStack() {
+		IntervalTreeNode[] stack = STACKS.get();
+		if(stack==null){
+			return new IntervalTreeNode[64];
+		}
+		STACKS.set(null);
+		return stack;
+	}
+	
+	private static void emit(Interval iv, Consumer<? super Interval> action, List<Interval> into) {
+		if(action!=null){
+			action.accept(iv);
+		}
+		else{
+			into.add(iv);
+		}
 	}
 	
 	
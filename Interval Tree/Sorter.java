@@ -1,6 +1,7 @@
 package structures;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * This class is a repository of sorting methods used by the interval tree.
@@ -16,52 +17,48 @@ public class Sorter {
 	/**
 	 * Sorts a set of intervals in place, according to left or right endpoints.  
 	 * At the end of the method, the parameter array list is a sorted list. 
+	 * Intervals with equal endpoints end up in the reverse of their original order
+	 * (which is the order the insertion sort this replaces left them in).
+	 * Runs in O(n log n) time: each interval's endpoint is packed with its index into
+	 * a long, the longs are sorted as primitives, and the list is rebuilt from the indexes.
 	 * 
 	 * @param intervals Array list of intervals to be sorted.
 	 * @param lr If 'l', then sort is on left endpoints; if 'r', sort is on right endpoints
 	 */
 	public static void sortIntervals(ArrayList<Interval> intervals, char lr) {
+		sortIntervals(intervals, lr, false);
+	}
+	
+	/**
+	 * Same as sortIntervals(intervals, lr), with the option of sorting in parallel.
+	 * The result is the same either way.
+	 * 
+	 * @param intervals Array list of intervals to be sorted.
+	 * @param lr If 'l', then sort is on left endpoints; if 'r', sort is on right endpoints
+	 * @param parallel If true, the keys are sorted with Arrays.parallelSort
+	 */
+	public static void sortIntervals(ArrayList<Interval> intervals, char lr, boolean parallel) {
 		
-		for(int i=1; i<intervals.size(); i++){
-
-			Interval x = intervals.get(i);
-
-			int pos=i-1;
-
-			for (pos=i-1; pos >= 0; pos--) {
-
-				Interval posIntrvl = intervals.get(pos);
-
-				int c;
-
-				if (lr == 'l') {
-
-					//c = posIntrvl.compareToLeft(currIntrvl);
-
-					c = posIntrvl.leftEndPoint - x.leftEndPoint;
-
-				} else {
-
-					//c = posIntrvl.compareToRight(currIntrvl);
-
-					c = posIntrvl.rightEndPoint - x.rightEndPoint;
-
-				}
-
-				if (c < 0) break;
-
-			}
-
-			for (int j=i-1; j > pos; j--) {
-
-				intervals.set(j+1,intervals.get(j));
-
-			}
-
-			intervals.set((pos+1), x);
-
+		int n = intervals.size();
+		Interval[] original = intervals.toArray(new Interval[n]);
+		
+		// endpoint in the high 32 bits, so the longs sort by endpoint first; then
+		// n-1-index in the low 32 bits, so equal endpoints sort by reverse index
+		long[] keys = new long[n];
+		for (int i=0; i < n; i++) {
+			int key = lr == 'l' ? original[i].leftEndPoint : original[i].rightEndPoint;
+			keys[i] = ((long)key << 32) | (n-1-i);
+		}
+		
+		if (parallel) {
+			Arrays.parallelSort(keys);
+		} else {
+			Arrays.sort(keys);
+		}
+		
+		for (int i=0; i < n; i++) {
+			intervals.set(i, original[n-1-(int)keys[i]]);
 		}
-
 	}
 	
 	/**
@@ -75,66 +72,44 @@ public class Sorter {
 	
 	public static ArrayList<Integer> getSortedEndPoints(ArrayList<Interval> leftSortedIntervals, ArrayList<Interval> rightSortedIntervals) {
 		
-		ArrayList<Integer> LP = new ArrayList<Integer>();
-		ArrayList<Integer> RP = new ArrayList<Integer>();
-		int count1=0;
-		int count2=0;
-		
-		for(int i=0; i<leftSortedIntervals.size(); i++){
-			if(i==0){
-				LP.add(leftSortedIntervals.get(i).leftEndPoint);
-				count1++;
-			}
-			else{
-				if(leftSortedIntervals.get(i).leftEndPoint!=LP.get(count1-1)){
-					LP.add(leftSortedIntervals.get(i).leftEndPoint);
-					count1++;
-				}
-			}
-		}
-		for(int j=0; j<rightSortedIntervals.size(); j++){
-			if(j==0){
-				RP.add(rightSortedIntervals.get(j).rightEndPoint);
-				count2++;
-			}
-			else{
-				if(rightSortedIntervals.get(j).rightEndPoint!=RP.get(count2-1)){
-					RP.add(rightSortedIntervals.get(j).rightEndPoint);
-					count2++;
-				}
-				
-			}
+		int[] endPoints = getSortedEndPointsArray(leftSortedIntervals, rightSortedIntervals);
+		ArrayList<Integer> result = new ArrayList<Integer>(endPoints.length);
+		for (int p : endPoints) {
+			result.add(p);
 		}
+		return result;
 		
-		ArrayList<Integer> result = new ArrayList<Integer>();
-		int i=0;
-		int j=0;
-		while(i!=LP.size() && j!=RP.size()){
-			if(LP.get(i)<RP.get(j)){
-				result.add(LP.get(i));
-				i++;
-			}
-			else if(LP.get(i)==RP.get(j)){
-				result.add(LP.get(i));
-				i++;
-				j++;
-			}
-			else{
-				result.add(RP.get(j));
-				j++;
-			}
-		}
-		if(i<LP.size()){
-			for(int k=i; k<LP.size(); k++){
-				result.add(LP.get(k));
+	}
+	
+	/**
+	 * Same as getSortedEndPoints, but returns the end points in an int array, without boxing them.
+	 * The left end points and right end points are merged in a single pass, dropping duplicates
+	 * as they come.
+	 * 
+	 * @param leftSortedIntervals Array list of intervals sorted according to left endpoints
+	 * @param rightSortedIntervals Array list of intervals sorted according to right endpoints
+	 * @return Sorted array of all endpoints without duplicates
+	 */
+	public static int[] getSortedEndPointsArray(ArrayList<Interval> leftSortedIntervals, ArrayList<Interval> rightSortedIntervals) {
+		
+		int nl = leftSortedIntervals.size();
+		int nr = rightSortedIntervals.size();
+		int[] result = new int[nl + nr];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < nl || j < nr) {
+			int p;
+			if (j == nr || (i < nl && leftSortedIntervals.get(i).leftEndPoint <= rightSortedIntervals.get(j).rightEndPoint)) {
+				p = leftSortedIntervals.get(i++).leftEndPoint;
+			} else {
+				p = rightSortedIntervals.get(j++).rightEndPoint;
 			}
-		}
-		if(j<RP.size()){
-			for(int k=j; k<RP.size(); k++){
-				result.add(RP.get(k));
+			if (count == 0 || result[count-1] != p) {
+				result[count++] = p;
 			}
 		}
-		return result;
+		return Arrays.copyOf(result, count);
 		
 	}	
 }
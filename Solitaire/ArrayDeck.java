@@ -0,0 +1,257 @@
+package solitaire;
+
+/**
+ * Array version of the Solitaire deck. It holds the same deck as the circular linked list
+ * in Solitaire, as an int[28] read from the top card (deckRear.next) down to the card
+ * that deckRear points to, and it performs the same four steps as Solitaire so that it
+ * produces exactly the same keys. Every step is done with System.arraycopy on the array;
+ * the positions of the two jokers are kept up to date so they never have to be searched for,
+ * and nothing is allocated once the deck has been made.
+ *
+ * @author RU NB CS112
+ */
+public class ArrayDeck {
+
+	/**
+	 * Card values, cards[0] is the top card and cards[27] is the rear card
+	 */
+	final int[] cards = new int[28];
+
+	/**
+	 * Positions of joker A (27) and joker B (28) in cards, both -1 while the deck has no cards
+	 */
+	int posA, posB;
+
+	/**
+	 * Work space for the cuts
+	 */
+	private final int[] scratch = new int[28];
+
+	/**
+	 * Makes a deck out of 28 card values, from the top card to the rear card.
+	 *
+	 * @param values Card values, a permutation of 1..28
+	 * @throws IllegalArgumentException If the values are not a permutation of 1..28
+	 */
+	public ArrayDeck(int[] values) {
+		set(values);
+	}
+
+	/**
+	 * Makes a deck with no cards yet, which cannot give keys until set is called.
+	 */
+	ArrayDeck() {
+		posA = -1;
+		posB = -1;
+	}
+
+	/**
+	 * Checks if this deck has no cards yet.
+	 *
+	 * @return True until set is called
+	 */
+	boolean isEmpty() {
+		return posA < 0;
+	}
+
+	/**
+	 * Replaces the cards in this deck.
+	 *
+	 * @param values Card values, a permutation of 1..28, from the top card to the rear card
+	 * @throws IllegalArgumentException If the values are not a permutation of 1..28
+	 */
+	void set(int[] values) {
+		DeckLoader.check(values, values.length);
+		System.arraycopy(values, 0, cards, 0, 28);
+		for (int i=0; i < 28; i++) {
+			if (cards[i] == 27) {
+				posA = i;
+			} else if (cards[i] == 28) {
+				posB = i;
+			}
+		}
+	}
+
+	/**
+	 * Makes a deck holding the same cards as a circular linked list deck.
+	 *
+	 * @param rear Rear pointer of the linked list deck
+	 * @return Array deck
+	 */
+	public static ArrayDeck fromList(CardNode rear) {
+		int[] values = new int[28];
+		CardNode ptr = rear;
+		for (int i=0; i < 28; i++) {
+			ptr = ptr.next;
+			values[i] = ptr.cardValue;
+		}
+		return new ArrayDeck(values);
+	}
+
+	/**
+	 * Makes a circular linked list holding the same cards as this deck.
+	 *
+	 * @return Rear pointer of the linked list deck
+	 */
+	public CardNode toList() {
+		CardNode rear = new CardNode();
+		rear.cardValue = cards[0];
+		rear.next = rear;
+		for (int i=1; i < 28; i++) {
+			CardNode cn = new CardNode();
+			cn.cardValue = cards[i];
+			cn.next = rear.next;
+			rear.next = cn;
+			rear = cn;
+		}
+		return rear;
+	}
+
+	/**
+	 * Implements Step 1 - Joker A - on the deck.
+	 */
+	void jokerA() {
+		posA = moveDown(posA, 1, posB);
+	}
+
+	/**
+	 * Implements Step 2 - Joker B - on the deck.
+	 */
+	void jokerB() {
+		posB = moveDown(posB, 2, posA);
+	}
+
+	/**
+	 * Moves the card at position i down k places around the circle (k is 1 or 2), the way
+	 * the linked list version does: the card is unlinked and linked back in k nodes later,
+	 * and the rear pointer stays on the node it was on. Updates the position of the other
+	 * joker, and returns the new position of the moved card.
+	 */
+	private int moveDown(int i, int k, int other) {
+		int card = cards[i];
+		int newPos;
+		if (i == 27) {
+			// the moved card is the rear, so the top moves to the k-th card after it
+			int top0 = cards[0], top1 = cards[1];
+			System.arraycopy(cards, k, cards, 0, 27-k);
+			cards[27-k] = top0;
+			if (k == 2) {
+				cards[26] = top1;
+			}
+			newPos = 27;
+			other = other >= k ? other-k : other+27-k;
+		} else if (i+k < 27) {
+			System.arraycopy(cards, i+1, cards, i, k);
+			newPos = i+k;
+			if (other > i && other <= i+k) {
+				other--;
+			}
+		} else if (i+k == 27) {
+			// the card lands right after the rear, which makes it the top card
+			System.arraycopy(cards, 0, cards, 1, i);
+			newPos = 0;
+			if (other < i) {
+				other++;
+			}
+		} else {
+			// the card goes past the rear and past the top card
+			int j = i+k-28;
+			System.arraycopy(cards, j+1, cards, j+2, i-j-1);
+			newPos = j+1;
+			if (other > j && other < i) {
+				other++;
+			}
+		}
+		cards[newPos] = card;
+		if (card == 27) {
+			posB = other;
+		} else {
+			posA = other;
+		}
+		return newPos;
+	}
+
+	/**
+	 * Implements Step 3 - Triple Cut - on the deck. Like the linked list version, the
+	 * jokers and the cards between them go to the top, followed by the cards that were
+	 * above the first joker; the cards below the second joker stay at the bottom.
+	 */
+	void tripleCut() {
+		int first = Math.min(posA, posB);
+		int second = Math.max(posA, posB);
+		if (first == 0) {
+			return;
+		}
+		System.arraycopy(cards, 0, scratch, 0, first);
+		System.arraycopy(cards, first, cards, 0, second-first+1);
+		System.arraycopy(scratch, 0, cards, second-first+1, first);
+		posA -= first;
+		posB -= first;
+	}
+
+	/**
+	 * Implements Step 4 - Count Cut - on the deck.
+	 */
+	void countCut() {
+		int count = cards[27];
+		if (count >= 27) {
+			return;
+		}
+		System.arraycopy(cards, 0, scratch, 0, count);
+		System.arraycopy(cards, count, cards, 0, 27-count);
+		System.arraycopy(scratch, 0, cards, 27-count, count);
+		posA = posA >= count ? posA-count : posA+27-count;
+		posB = posB >= count ? posB-count : posB+27-count;
+	}
+
+	/**
+	 * Gets a key, exactly as Solitaire.getKey does.
+	 *
+	 * @return Key between 1 and 26
+	 * @throws IllegalStateException If the deck has no cards yet
+	 */
+	int getKey() {
+		if (posA < 0) {
+			throw new IllegalStateException("No deck has been made yet");
+		}
+		while (true) {
+			jokerA();
+			jokerB();
+			tripleCut();
+			countCut();
+
+			int target = cards[0];
+			if (target == 28) {
+				target = 27;
+			}
+			int key = cards[target];
+			if (key != 27 && key != 28) {
+				return key;
+			}
+		}
+	}
+
+	/**
+	 * Fills part of an array with the next keys of the keystream.
+	 *
+	 * @param out Array to fill
+	 * @param off Index of the first key in out
+	 * @param len Number of keys
+	 */
+	void nextKeys(int[] out, int off, int len) {
+		for (int i=off; i < off+len; i++) {
+			out[i] = getKey();
+		}
+	}
+
+	/**
+	 * Moves the keystream ahead by n keys.
+	 *
+	 * @param n Number of keys to skip
+	 */
+	void skip(long n) {
+		for (long i=0; i < n; i++) {
+			getKey();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package solitaire;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Encrypts or decrypts many independent messages at once. Each message gets its own
+ * cipher session, started from the message's deck, and the messages are split into
+ * chunks that run in parallel on an executor.
+ * 
+ * @author RU NB CS112
+ */
+public class CipherService {
+	
+	/**
+	 * Number of chunks per thread, so that threads that finish early can pick up more work
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+	
+	/**
+	 * Executor that runs the chunks
+	 */
+	private final ExecutorService executor;
+	
+	/**
+	 * Makes a service that runs on the common fork-join pool.
+	 */
+	public CipherService() {
+		this(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Makes a service that runs on the given executor. The executor is not shut down
+	 * by this service.
+	 * 
+	 * @param executor Executor for the chunks of messages
+	 */
+	public CipherService(ExecutorService executor) {
+		this.executor = executor;
+	}
+	
+	/**
+	 * Encrypts every message, each starting from its own deck.
+	 * 
+	 * @param messages Messages to be encrypted
+	 * @return Encrypted messages, in the same order
+	 * @throws InterruptedException If interrupted while waiting for the results
+	 */
+	public List<String> encryptAll(List<Message> messages) 
+	throws InterruptedException {
+		return run(messages, false);
+	}
+	
+	/**
+	 * Decrypts every message, each starting from its own deck.
+	 * 
+	 * @param messages Messages to be decrypted
+	 * @return Decrypted messages, in the same order
+	 * @throws InterruptedException If interrupted while waiting for the results
+	 */
+	public List<String> decryptAll(List<Message> messages) 
+	throws InterruptedException {
+		return run(messages, true);
+	}
+	
+	private List<String> run(List<Message> messages, boolean decrypt) 
+	throws InterruptedException {
+		Message[] all = messages.toArray(new Message[0]);
+		String[] results = new String[all.length];
+		int threads = Runtime.getRuntime().availableProcessors();
+		int chunk = Math.max(1, all.length / (threads * CHUNKS_PER_THREAD));
+		
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int start=0; start < all.length; start += chunk) {
+			int from = start;
+			int to = Math.min(all.length, start+chunk);
+			tasks.add(() -> {
+				for (int i=from; i < to; i++) {
+					CipherSession session = new CipherSession(all[i].getDeck());
+					String text = all[i].getText();
+					results[i] = decrypt ? session.decrypt(text) : session.encrypt(text);
+				}
+				return null;
+			});
+		}
+		
+		for (Future<Void> f : executor.invokeAll(tasks)) {
+			try {
+				f.get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException)cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error)cause;
+				}
+				throw new IllegalStateException(cause);
+			}
+		}
+		return Arrays.asList(results);
+	}
+}
@@ -0,0 +1,47 @@
+package solitaire;
+
+/**
+ * A Solitaire cipher session, which owns its own deck. A session starts from a deck snapshot
+ * and moves through the keystream as it encrypts or decrypts; sessions share nothing, so
+ * any number of them can be used at the same time in different threads (but each session
+ * by only one thread at a time).
+ * 
+ * @author RU NB CS112
+ */
+public class CipherSession {
+	
+	/**
+	 * Cipher holding this session's deck, always in array form
+	 */
+	private final Solitaire cipher = new Solitaire();
+	
+	/**
+	 * Starts a session at the given deck.
+	 * 
+	 * @param deck Starting deck
+	 */
+	public CipherSession(DeckSnapshot deck) {
+		cipher.useArrayDeck(true);
+		cipher.setDeck(deck.cards());
+	}
+	
+	/**
+	 * Encrypts a message with the next keys of this session's keystream.
+	 * 
+	 * @param message Message to be encrypted
+	 * @return Encrypted message, a sequence of upper case letters only
+	 */
+	public String encrypt(String message) {
+		return cipher.encrypt(message);
+	}
+	
+	/**
+	 * Decrypts a message with the next keys of this session's keystream.
+	 * 
+	 * @param message Message to be decrypted
+	 * @return Decrypted message, a sequence of upper case letters only
+	 */
+	public String decrypt(String message) {
+		return cipher.decrypt(message);
+	}
+}
@@ -0,0 +1,144 @@
+package solitaire;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads decks written as text, 28 card values separated by white space or commas, which is the
+ * format of the deck files read by Solitaire.makeDeck. Numbers are parsed straight from the bytes,
+ * and every deck is checked to be a permutation of 1..28 before it is used, so a bad deck is
+ * reported right away instead of making the steps search forever for a missing joker.
+ * It's a utility class - all methods are static, and the class cannot be instantiated.
+ * 
+ * @author RU NB CS112
+ */
+public class DeckLoader {
+	
+	private DeckLoader() { }
+	
+	/**
+	 * Reads one deck from an array holding exactly one deck.
+	 * 
+	 * @param bytes Text of the deck
+	 * @return Card values from the top card to the rear card
+	 * @throws IllegalArgumentException If the text is not exactly one valid deck
+	 */
+	public static int[] parse(byte[] bytes) {
+		ByteBuffer buf = ByteBuffer.wrap(bytes);
+		int[] values = parse(buf);
+		if (values == null) {
+			throw new IllegalArgumentException("No deck found");
+		}
+		if (skipSeparators(buf, buf.position()) < buf.limit()) {
+			throw new IllegalArgumentException("More than 28 cards in deck");
+		}
+		return values;
+	}
+	
+	/**
+	 * Reads the next deck from a buffer, leaving the buffer positioned after it.
+	 * 
+	 * @param buf Text holding one or more decks
+	 * @return Card values from the top card to the rear card, or null if there are no more decks
+	 * @throws IllegalArgumentException If the next deck is not valid
+	 */
+	public static int[] parse(ByteBuffer buf) {
+		int limit = buf.limit();
+		int pos = skipSeparators(buf, buf.position());
+		if (pos == limit) {
+			buf.position(pos);
+			return null;
+		}
+		int[] values = new int[28];
+		for (int i=0; i < 28; i++) {
+			pos = skipSeparators(buf, pos);
+			if (pos == limit) {
+				throw new IllegalArgumentException("Deck has only " + i + " cards");
+			}
+			int value = 0;
+			int start = pos;
+			while (pos < limit) {
+				int b = buf.get(pos);
+				if (b < '0' || b > '9') {
+					break;
+				}
+				value = value*10 + (b-'0');
+				pos++;
+				if (pos-start > 2) {
+					throw new IllegalArgumentException("Card value out of range 1..28");
+				}
+			}
+			if (pos == start) {
+				throw new IllegalArgumentException("Unexpected character '" + (char)buf.get(pos) + "' in deck");
+			}
+			values[i] = value;
+		}
+		buf.position(pos);
+		check(values, 28);
+		return values;
+	}
+	
+	/**
+	 * Reads every deck from a stream, until the end of the stream. The stream is not closed.
+	 * 
+	 * @param in Text holding any number of decks
+	 * @return Decks in the order they were read
+	 * @throws IOException If reading fails
+	 * @throws IllegalArgumentException If any deck is not valid
+	 */
+	public static List<DeckSnapshot> readAll(InputStream in) 
+	throws IOException {
+		ByteBuffer buf = ByteBuffer.wrap(in.readAllBytes());
+		List<DeckSnapshot> decks = new ArrayList<DeckSnapshot>();
+		int[] values;
+		while ((values = parse(buf)) != null) {
+			decks.add(new DeckSnapshot(values));
+		}
+		return decks;
+	}
+	
+	/**
+	 * Checks that card values are a permutation of 1..28, using the bits of an int
+	 * to record which cards have been seen.
+	 * 
+	 * @param values Card values
+	 * @param count Number of card values
+	 * @throws IllegalArgumentException If they are not
+	 */
+	static void check(int[] values, int count) {
+		if (count != 28) {
+			throw new IllegalArgumentException("A deck has 28 cards, not " + count);
+		}
+		int seen = 0;
+		for (int i=0; i < 28; i++) {
+			int value = values[i];
+			if (value < 1 || value > 28) {
+				throw new IllegalArgumentException("Card value " + value + " out of range 1..28");
+			}
+			if ((seen & (1 << value)) != 0) {
+				throw new IllegalArgumentException("Card " + value + " appears twice in deck");
+			}
+			seen |= 1 << value;
+		}
+	}
+	
+	/**
+	 * Skips white space and commas, starting at a given index in the buffer.
+	 * 
+	 * @return Index of the first byte after them, which is the limit of the buffer if nothing is left
+	 */
+	private static int skipSeparators(ByteBuffer buf, int pos) {
+		int limit = buf.limit();
+		while (pos < limit) {
+			int b = buf.get(pos);
+			if (b != ' ' && b != ',' && b != '\n' && b != '\r' && b != '\t') {
+				break;
+			}
+			pos++;
+		}
+		return pos;
+	}
+}
@@ -0,0 +1,107 @@
+package solitaire;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * An unchangeable copy of a Solitaire deck, which can be shared freely between threads
+ * and used to start any number of independent cipher sessions from the same deck.
+ * 
+ * @author RU NB CS112
+ */
+public final class DeckSnapshot {
+	
+	/**
+	 * Card values from the top card to the rear card
+	 */
+	private final int[] cards;
+	
+	/**
+	 * Makes a snapshot of the given card values.
+	 * 
+	 * @param values Card values from the top card to the rear card, a permutation of 1..28
+	 * @throws IllegalArgumentException If the values are not a permutation of 1..28
+	 */
+	public DeckSnapshot(int[] values) {
+		cards = values.clone();
+		DeckLoader.check(cards, cards.length);
+	}
+	
+	/**
+	 * Makes a snapshot of a shuffled deck, without making a Solitaire. With a seeded
+	 * generator such as SplittableRandom this gives the same decks every run.
+	 * 
+	 * @param random Random number generator for the shuffle
+	 * @return Snapshot of a shuffled deck
+	 */
+	public static DeckSnapshot shuffled(RandomGenerator random) {
+		return new DeckSnapshot(Solitaire.shuffle(random));
+	}
+	
+	/**
+	 * Returns the card values of this deck.
+	 * 
+	 * @return New array of the card values from the top card to the rear card
+	 */
+	public int[] toArray() {
+		return cards.clone();
+	}
+	
+	/**
+	 * Returns this deck in 28 bytes, one card value per byte from the top card to the rear card.
+	 * 
+	 * @return Array of 28 bytes
+	 */
+	public byte[] toBytes() {
+		byte[] bytes = new byte[28];
+		for (int i=0; i < 28; i++) {
+			bytes[i] = (byte)cards[i];
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Makes a snapshot out of 28 bytes written by toBytes.
+	 * 
+	 * @param bytes Card values, one per byte
+	 * @return Snapshot of the deck
+	 * @throws IllegalArgumentException If the bytes are not a permutation of 1..28
+	 */
+	public static DeckSnapshot fromBytes(byte[] bytes) {
+		return fromBytes(bytes, 0);
+	}
+	
+	/**
+	 * Makes a snapshot out of 28 bytes written by toBytes, starting at a given offset.
+	 * 
+	 * @param bytes Array holding the card values, one per byte
+	 * @param off Index of the top card
+	 * @return Snapshot of the deck
+	 * @throws IllegalArgumentException If the bytes are not a permutation of 1..28
+	 */
+	public static DeckSnapshot fromBytes(byte[] bytes, int off) {
+		int[] values = new int[28];
+		for (int i=0; i < 28; i++) {
+			values[i] = bytes[off+i];
+		}
+		return new DeckSnapshot(values);
+	}
+	
+	/**
+	 * Two snapshots are equal if they hold the same cards in the same order.
+	 */
+	public boolean equals(Object o) {
+		return o instanceof DeckSnapshot && Arrays.equals(cards, ((DeckSnapshot)o).cards);
+	}
+	
+	public int hashCode() {
+		return Arrays.hashCode(cards);
+	}
+	
+	/**
+	 * Card values, not copied, for use within the package
+	 */
+	int[] cards() {
+		return cards;
+	}
+}
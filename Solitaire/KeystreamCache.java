@@ -0,0 +1,251 @@
+package solitaire;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of keystreams, for when many messages are encrypted or decrypted from the same
+ * starting deck. Each starting deck maps to the keys generated from it so far, one byte per
+ * key, and the keystream is only extended when a message is longer than any before it.
+ * The cache is bounded both in decks and in bytes of keys: when either limit is passed,
+ * the least recently used decks are dropped until it is not.
+ * All methods may be called from several threads at once.
+ * 
+ * @author RU NB CS112
+ */
+public class KeystreamCache {
+	
+	/**
+	 * Byte limit used when none is given
+	 */
+	public static final long DEFAULT_MAX_BYTES = 64L << 20;
+	
+	/**
+	 * Most keys generated beyond what was asked for when a keystream is extended. Below this
+	 * the keystream doubles, so that growing it key by key stays linear; above it, a long
+	 * message does not make the cache hold twice its length.
+	 */
+	private static final int MAX_SLACK = 1 << 16;
+	
+	/**
+	 * Keystream of one starting deck, and the deck for generating more of it
+	 */
+	private static class Entry {
+		final ArrayDeck deck;
+		
+		/**
+		 * Keys generated so far; only replaced, never changed, and only while holding this entry's lock
+		 */
+		volatile byte[] keys = new byte[0];
+		
+		/**
+		 * Bytes of keys counted in the cache's total for this entry, and whether it has been
+		 * dropped from the cache; both only used while holding the cache's lock
+		 */
+		long counted;
+		boolean dropped;
+		
+		Entry(DeckSnapshot start) {
+			deck = new ArrayDeck(start.cards());
+		}
+	}
+	
+	/**
+	 * Keystreams in least recently used order
+	 */
+	private final LinkedHashMap<DeckSnapshot,Entry> entries;
+	
+	private final long maxBytes;
+	
+	/**
+	 * Bytes of keys held by all the entries
+	 */
+	private long bytes;
+	
+	private long hits, partialHits, misses, evictions;
+	
+	/**
+	 * Makes an empty cache holding at most DEFAULT_MAX_BYTES of keys.
+	 * 
+	 * @param maxDecks Maximum number of starting decks to keep keystreams for
+	 */
+	public KeystreamCache(int maxDecks) {
+		this(maxDecks, DEFAULT_MAX_BYTES);
+	}
+	
+	/**
+	 * Makes an empty cache.
+	 * 
+	 * @param maxDecks Maximum number of starting decks to keep keystreams for
+	 * @param maxBytes Maximum number of bytes of keys to keep, over all decks
+	 */
+	public KeystreamCache(int maxDecks, long maxBytes) {
+		this.maxBytes = maxBytes;
+		entries = new LinkedHashMap<DeckSnapshot,Entry>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<DeckSnapshot,Entry> eldest) {
+				if (size() > maxDecks) {
+					drop(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * Returns at least n keys of the keystream for a starting deck, generating
+	 * whatever is not in the cache yet. The cache lock is only held to find or add the
+	 * deck's entry and to keep count of bytes; the keystream is extended under that entry's
+	 * own lock, so a long message only holds up other threads that need more of the same
+	 * keystream. The returned array is never changed afterwards, so it can be read without
+	 * any lock, and it stays valid even if the deck is dropped from the cache.
+	 * 
+	 * @param start Starting deck
+	 * @param n Number of keys needed
+	 * @return Keys, one per byte, at least n of them
+	 */
+	public byte[] keys(DeckSnapshot start, int n) {
+		Entry e;
+		synchronized (this) {
+			e = entries.get(start);
+			if (e == null) {
+				misses++;
+				e = new Entry(start);
+				entries.put(start, e);
+			} else if (e.keys.length >= n) {
+				hits++;
+			} else {
+				partialHits++;
+			}
+		}
+		byte[] keys = e.keys;
+		if (keys.length >= n) {
+			return keys;
+		}
+		synchronized (e) {
+			keys = e.keys;
+			if (keys.length < n) {
+				int length = Math.max(n, (int)Math.min(2L*keys.length, (long)keys.length + MAX_SLACK));
+				byte[] more = new byte[length];
+				System.arraycopy(keys, 0, more, 0, keys.length);
+				for (int i=keys.length; i < more.length; i++) {
+					more[i] = (byte)e.deck.getKey();
+				}
+				// published only once it is filled in
+				e.keys = more;
+				keys = more;
+			}
+		}
+		grew(e);
+		return keys;
+	}
+	
+	/**
+	 * Counts the bytes an entry holds now, and drops least recently used decks while
+	 * the cache holds too many bytes
+	 */
+	private synchronized void grew(Entry e) {
+		if (e.dropped) {
+			return;
+		}
+		bytes += e.keys.length - e.counted;
+		e.counted = e.keys.length;
+		Iterator<Entry> lru = entries.values().iterator();
+		while (bytes > maxBytes && lru.hasNext()) {
+			drop(lru.next());
+			lru.remove();
+		}
+	}
+	
+	/**
+	 * Takes an entry that is being removed out of the byte count
+	 */
+	private void drop(Entry e) {
+		bytes -= e.counted;
+		e.counted = 0;
+		e.dropped = true;
+		evictions++;
+	}
+	
+	/**
+	 * Encrypts a message starting from the given deck, the same as Solitaire.encrypt would
+	 * after the deck was loaded into it.
+	 * 
+	 * @param start Starting deck
+	 * @param message Message to be encrypted
+	 * @return Encrypted message, a sequence of upper case letters only
+	 */
+	public String encrypt(DeckSnapshot start, String message) {
+		return transform(start, message, false);
+	}
+	
+	/**
+	 * Decrypts a message starting from the given deck.
+	 * 
+	 * @param start Starting deck
+	 * @param message Message to be decrypted
+	 * @return Decrypted message, a sequence of upper case letters only
+	 */
+	public String decrypt(DeckSnapshot start, String message) {
+		return transform(start, message, true);
+	}
+	
+	private String transform(DeckSnapshot start, String message, boolean decrypt) {
+		char[] chars = message.toCharArray();
+		int n = 0;
+		for (int i=0; i < chars.length; i++) {
+			if (Solitaire.isMessageChar(chars[i])) {
+				chars[n++] = chars[i];
+			}
+		}
+		byte[] keys = keys(start, n);
+		for (int i=0; i < n; i++) {
+			chars[i] = decrypt ? Solitaire.decryptChar(chars[i], keys[i]) : Solitaire.encryptChar(chars[i], keys[i]);
+		}
+		return new String(chars, 0, n);
+	}
+	
+	/**
+	 * Returns the number of lookups that found all the keys they needed in the cache
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	/**
+	 * Returns the number of lookups that found the deck in the cache, but had to
+	 * generate more of its keystream
+	 */
+	public synchronized long getPartialHits() {
+		return partialHits;
+	}
+	
+	/**
+	 * Returns the number of lookups that had to start a new keystream
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Returns the number of keystreams dropped to make room for others
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+	
+	/**
+	 * Returns the number of bytes of keys currently in the cache
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+	
+	/**
+	 * Returns the number of starting decks currently in the cache
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,92 @@
+package solitaire;
+
+/**
+ * Saved decks at regular points along a keystream, so that a long ciphertext can be
+ * decrypted starting from any position without replaying the keystream from the start:
+ * the nearest earlier saved deck is restored and only the keys after it are generated.
+ * Each saved deck takes 28 bytes.
+ * 
+ * @author RU NB CS112
+ */
+public class KeystreamCheckpoints {
+	
+	/**
+	 * Number of keys between saved decks
+	 */
+	private final int interval;
+	
+	/**
+	 * Saved decks, 28 bytes each; deck i is the deck before key number i*interval
+	 */
+	private final byte[] decks;
+	
+	/**
+	 * Number of saved decks
+	 */
+	private final int count;
+	
+	/**
+	 * Runs the keystream from a starting deck and saves the deck every interval keys.
+	 * 
+	 * @param start Starting deck
+	 * @param length Number of keys to cover
+	 * @param interval Number of keys between saved decks
+	 */
+	public KeystreamCheckpoints(DeckSnapshot start, long length, int interval) {
+		if (interval <= 0) {
+			throw new IllegalArgumentException("Checkpoint interval must be positive");
+		}
+		this.interval = interval;
+		count = (int)(length / interval) + 1;
+		decks = new byte[28*count];
+		ArrayDeck deck = new ArrayDeck(start.cards());
+		for (int i=0; i < count; i++) {
+			if (i > 0) {
+				deck.skip(interval);
+			}
+			for (int j=0; j < 28; j++) {
+				decks[28*i+j] = (byte)deck.cards[j];
+			}
+		}
+	}
+	
+	/**
+	 * Returns the saved deck nearest to, but not after, the given position.
+	 * 
+	 * @param position Number of keys from the start of the keystream
+	 * @return Saved deck, which is at position (position / interval) * interval or earlier
+	 */
+	public DeckSnapshot nearest(long position) {
+		return DeckSnapshot.fromBytes(decks, 28*index(position));
+	}
+	
+	private int index(long position) {
+		return (int)Math.min(position / interval, count-1);
+	}
+	
+	/**
+	 * Returns a cipher whose keystream is at the given position, made by restoring
+	 * the nearest saved deck and skipping the keys after it.
+	 * 
+	 * @param position Number of keys from the start of the keystream
+	 * @return Cipher ready to produce key number position
+	 */
+	public Solitaire cipherAt(long position) {
+		Solitaire cipher = new Solitaire();
+		cipher.useArrayDeck(true);
+		cipher.restore(nearest(position));
+		cipher.skip(position - (long)index(position)*interval);
+		return cipher;
+	}
+	
+	/**
+	 * Decrypts part of a ciphertext, given where that part starts in the whole ciphertext.
+	 * 
+	 * @param part Upper case letters of the ciphertext, starting at position
+	 * @param position Number of letters in the ciphertext before part
+	 * @return Decrypted part
+	 */
+	public String decrypt(String part, long position) {
+		return cipherAt(position).decrypt(part);
+	}
+}
@@ -0,0 +1,32 @@
+package solitaire;
+
+/**
+ * A message to be encrypted or decrypted, together with the deck it starts from.
+ * 
+ * @author RU NB CS112
+ */
+public final class Message {
+	
+	/**
+	 * Starting deck for this message
+	 */
+	private final DeckSnapshot deck;
+	
+	/**
+	 * Text of the message
+	 */
+	private final String text;
+	
+	public Message(DeckSnapshot deck, String text) {
+		this.deck = deck;
+		this.text = text;
+	}
+	
+	public DeckSnapshot getDeck() {
+		return deck;
+	}
+	
+	public String getText() {
+		return text;
+	}
+}
@@ -1,9 +1,15 @@
 package solitaire;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
 import java.util.Scanner;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * This class implements a simplified version of Bruce Schneier's Solitaire Encryption algorithm.
@@ -17,68 +23,176 @@ public class Solitaire {
 	 */
 	CardNode deckRear;
 	
+	/**
+	 * Array version of the deck, used instead of the linked list when it is not null
+	 * (see useArrayDeck). Only one of the two is kept up to date at a time.
+	 */
+	ArrayDeck arrayDeck;
+	
+	/**
+	 * Switches between the linked list deck and the array deck, which is much faster
+	 * and gives exactly the same keys. The current deck is carried over to the other form.
+	 * Decks made after this call are also made in the chosen form.
+	 * 
+	 * @param on True to use the array deck, false to use the linked list deck
+	 */
+	public void useArrayDeck(boolean on) {
+		if (on && arrayDeck == null) {
+			// with no deck made yet, the array deck stays empty and refuses to give keys
+			arrayDeck = deckRear == null ? new ArrayDeck() : ArrayDeck.fromList(deckRear);
+			deckRear = null;
+		} else if (!on && arrayDeck != null) {
+			deckRear = arrayDeck.isEmpty() ? null : arrayDeck.toList();
+			arrayDeck = null;
+		}
+	}
+	
+	/**
+	 * Sets the deck to the given card values, in whichever form (linked list or array)
+	 * is in use.
+	 * 
+	 * @param values Card values from the top card to the rear card
+	 */
+	void setDeck(int[] values) {
+		if (arrayDeck != null) {
+			arrayDeck.set(values);
+			return;
+		}
+		deckRear = new ArrayDeck(values).toList();
+	}
+	
+	/**
+	 * Returns the card values of the deck, from the top card to the rear card.
+	 * 
+	 * @return Array of 28 card values
+	 */
+	int[] getDeck() {
+		if (arrayDeck != null) {
+			if (arrayDeck.isEmpty()) {
+				throw new IllegalStateException("No deck has been made yet");
+			}
+			return arrayDeck.cards.clone();
+		}
+		return ArrayDeck.fromList(deckRear).cards;
+	}
+	
+	/**
+	 * Takes a snapshot of the deck as it is now, so the keystream can be restarted from
+	 * this point later with restore.
+	 * 
+	 * @return Snapshot of the deck
+	 */
+	public DeckSnapshot snapshot() {
+		return new DeckSnapshot(getDeck());
+	}
+	
+	/**
+	 * Sets the deck back to a snapshot, in whichever form (linked list or array) is in use.
+	 * 
+	 * @param deck Snapshot of a deck
+	 */
+	public void restore(DeckSnapshot deck) {
+		setDeck(deck.cards());
+	}
+	
 	/**
 	 * Makes a shuffled deck of cards for encryption. The deck is stored in a circular
 	 * linked list, whose last node is pointed to by the field deckRear
+	 * (or in the array deck, if that is in use)
 	 */
 	public void makeDeck() {
-		// start with an array of 1..28 for easy shuffling
+		makeDeck(ThreadLocalRandom.current());
+	}
+	
+	/**
+	 * Makes a shuffled deck of cards that is the same every time for the same seed.
+	 * 
+	 * @param seed Seed for the shuffle
+	 */
+	public void makeDeck(long seed) {
+		makeDeck(new SplittableRandom(seed));
+	}
+	
+	/**
+	 * Makes a deck of cards shuffled with the given random number generator.
+	 * 
+	 * @param random Random number generator for the shuffle
+	 */
+	public void makeDeck(RandomGenerator random) {
+		setDeck(shuffle(random));
+	}
+	
+	/**
+	 * Returns the card values 1..28 in random order. Uses the Fisher-Yates shuffle, where
+	 * each card is swapped with one at or before it, so every order is equally likely.
+	 * 
+	 * @param random Random number generator for the shuffle
+	 * @return Array of 28 shuffled card values
+	 */
+	static int[] shuffle(RandomGenerator random) {
 		int[] cardValues = new int[28];
-		// assign values from 1 to 28
 		for (int i=0; i < cardValues.length; i++) {
 			cardValues[i] = i+1;
 		}
-		
-		// shuffle the cards
-		Random randgen = new Random();
- 	        for (int i = 0; i < cardValues.length; i++) {
-	            int other = randgen.nextInt(28);
-	            int temp = cardValues[i];
-	            cardValues[i] = cardValues[other];
-	            cardValues[other] = temp;
-	        }
-	     
-	    // create a circular linked list from this deck and make deckRear point to its last node
-	    CardNode cn = new CardNode();
-	    cn.cardValue = cardValues[0];
-	    cn.next = cn;
-	    deckRear = cn;
-	    for (int i=1; i < cardValues.length; i++) {
-	    	cn = new CardNode();
-	    	cn.cardValue = cardValues[i];
-	    	cn.next = deckRear.next;
-	    	deckRear.next = cn;
-	    	deckRear = cn;
-	    }
+		for (int i=cardValues.length-1; i > 0; i--) {
+			int other = random.nextInt(i+1);
+			int temp = cardValues[i];
+			cardValues[i] = cardValues[other];
+			cardValues[other] = temp;
+		}
+		return cardValues;
 	}
 	
 	/**
-	 * Makes a circular linked list deck out of values read from scanner.
+	 * Makes a circular linked list deck out of values read from scanner
+	 * (or an array deck, if that is in use).
+	 * 
+	 * @throws IllegalArgumentException If the values are not a permutation of 1..28
 	 */
 	public void makeDeck(Scanner scanner) 
 	throws IOException {
-		CardNode cn = null;
-		if (scanner.hasNextInt()) {
-			cn = new CardNode();
-		    cn.cardValue = scanner.nextInt();
-		    cn.next = cn;
-		    deckRear = cn;
-		}
+		int[] values = new int[28];
+		int count = 0;
 		while (scanner.hasNextInt()) {
-			cn = new CardNode();
-	    	cn.cardValue = scanner.nextInt();
-	    	cn.next = deckRear.next;
-	    	deckRear.next = cn;
-	    	deckRear = cn;
+			if (count == 28) {
+				throw new IllegalArgumentException("More than 28 cards in deck");
+			}
+			values[count++] = scanner.nextInt();
 		}
+		DeckLoader.check(values, count);
+		setDeck(values);
+	}
+	
+	/**
+	 * Makes a deck out of the text of a deck file, in whichever form (linked list or array)
+	 * is in use. This is much faster than reading the same text with a Scanner.
+	 * 
+	 * @param bytes Text of the deck, 28 card values separated by white space or commas
+	 * @throws IllegalArgumentException If the text is not exactly one valid deck
+	 */
+	public void makeDeck(byte[] bytes) {
+		setDeck(DeckLoader.parse(bytes));
+	}
+	
+	/**
+	 * Makes a deck out of the text of a deck file read from a stream. The stream is read
+	 * to its end but not closed.
+	 * 
+	 * @param in Text of the deck, 28 card values separated by white space or commas
+	 * @throws IOException If reading fails
+	 * @throws IllegalArgumentException If the text is not exactly one valid deck
+	 */
+	public void makeDeck(InputStream in) 
+	throws IOException {
+		makeDeck(in.readAllBytes());
 	}
 	
 	/**
 	 * Implements Step 1 - Joker A - on the deck.
 	 */
 	void jokerA() {
-		CardNode ptr=deckRear;
-		CardNode prev=null;
+		CardNode prev=deckRear;
+		CardNode ptr=deckRear.next;
 		while(ptr.cardValue!=27){
 			prev=ptr;
 			ptr=ptr.next;
@@ -95,8 +209,8 @@ public class Solitaire {
 	 * Implements Step 2 - Joker B - on the deck.
 	 */
 	void jokerB() {
-	    CardNode ptr=deckRear;
-	    CardNode prev=null;
+	    CardNode prev=deckRear;
+	    CardNode ptr=deckRear.next;
 	    while(ptr.cardValue!=28){
 	    	prev=ptr;
 	    	ptr=ptr.next;
@@ -158,7 +272,11 @@ public class Solitaire {
 	/**
 	 * Implements Step 4 - Count Cut - on the deck.
 	 */
-	void countCut() {		
+	void countCut() {
+		// a joker at the rear counts as 27, and cutting 27 cards leaves the deck as it is
+		if(deckRear.cardValue>=27){
+			return;
+		}
 		CardNode tep=deckRear.next;
 		CardNode ptr=deckRear;
 		int count=0;
@@ -188,29 +306,77 @@ public class Solitaire {
          * @return Key between 1 and 26
          */
 	int getKey() {
+		if (arrayDeck != null) {
+			return arrayDeck.getKey();
+		}
 		
-		jokerA();
-		jokerB();
-		tripleCut();
-		countCut();
+		while(true){
+			jokerA();
+			jokerB();
+			tripleCut();
+			countCut();
+			
+			int target=deckRear.next.cardValue;
+			if(target==28){
+				target=27;
+			}
+			CardNode ptr=deckRear;
+			int count=0;
+			while(count<target){
+				ptr=ptr.next;
+				count++;
+			}
+			if(ptr.next.cardValue!=27 && ptr.next.cardValue!=28){
+				return ptr.next.cardValue;
+			}
+		}
 		
-		int target=deckRear.next.cardValue;
-		if(target==28){
-			target=27;
+	}
+	
+	/**
+	 * Fills part of an array with the next keys of the keystream, the same keys that
+	 * len calls to getKey would return.
+	 * 
+	 * @param out Array to fill
+	 * @param off Index of the first key in out
+	 * @param len Number of keys
+	 */
+	public void nextKeys(int[] out, int off, int len) {
+		if (arrayDeck != null) {
+			arrayDeck.nextKeys(out, off, len);
+			return;
 		}
-		CardNode ptr=deckRear;
-		int count=0;
-		while(count<target){
-			ptr=ptr.next;
-			count++;
+		for (int i=off; i < off+len; i++) {
+			out[i] = getKey();
 		}
-		if(ptr.next.cardValue!=27 && ptr.next.cardValue!=28){
-			return ptr.next.cardValue;
+	}
+	
+	/**
+	 * Moves the keystream ahead by n keys, as if n characters had been encrypted,
+	 * without producing anything.
+	 * 
+	 * @param n Number of keys to skip
+	 */
+	public void skip(long n) {
+		if (arrayDeck != null) {
+			arrayDeck.skip(n);
+			return;
 		}
-		else{
-			return getKey();
+		for (long i=0; i < n; i++) {
+			getKey();
 		}
-		
+	}
+	
+	/**
+	 * Returns the next n keys of the keystream.
+	 * 
+	 * @param n Number of keys
+	 * @return Array of n keys, each between 1 and 26
+	 */
+	public int[] keystream(int n) {
+		int[] keys = new int[n];
+		nextKeys(keys, 0, n);
+		return keys;
 	}
 	
 	/**
@@ -231,6 +397,11 @@ public class Solitaire {
 		System.out.println("\n");
 	}
 
+	/**
+	 * Number of characters handled at a time by the streaming encrypt and decrypt
+	 */
+	private static final int BLOCK = 4096;
+
 	/**
 	 * Encrypts a message, ignores all characters except upper case letters
 	 * 
@@ -238,26 +409,9 @@ public class Solitaire {
 	 * @return Encrypted message, a sequence of upper case letters only
 	 */
 	public String encrypt(String message) {	
-		String m="";
-		String result="";
-		for(int i=0; i<message.length(); i++){
-			if(Character.isLetter(message.charAt(i))){
-				if(Character.isUpperCase(message.charAt(i))){
-					m+=message.charAt(i);
-				}
-			}
-			
-		}
-		for(int i=0; i<m.length();i++){
-			int index=m.charAt(i)-64+getKey();
-			if(index>26){
-				index=index-26;
-			}
-			index+=64;
-			char ch=(char)index;
-			result+=ch;
-		}
-	    return result;
+		char[] chars = message.toCharArray();
+		int len = transform(chars, chars.length, new int[Math.min(BLOCK, chars.length)], false);
+	    return new String(chars, 0, len);
 	}
 	
 	/**
@@ -267,27 +421,149 @@ public class Solitaire {
 	 * @return Decrypted message, a sequence of upper case letters only
 	 */
 	public String decrypt(String message) {	
-		String m="";
-		String result="";
-		for(int i=0; i<message.length(); i++){
-			if(Character.isLetter(message.charAt(i))){
-				if(Character.isUpperCase(message.charAt(i))){
-					m+=message.charAt(i);
-				}
+		char[] chars = message.toCharArray();
+		int len = transform(chars, chars.length, new int[Math.min(BLOCK, chars.length)], true);
+	    return new String(chars, 0, len);
+	}
+	
+	/**
+	 * Encrypts a message and appends the result to out, a block of characters at a time,
+	 * so only a fixed amount of memory is used however long the message is.
+	 * 
+	 * @param message Message to be encrypted
+	 * @param out Where the encrypted message is written
+	 * @throws IOException If out throws it
+	 */
+	public void encrypt(CharSequence message, Appendable out) 
+	throws IOException {
+		transform(message, out, false);
+	}
+	
+	/**
+	 * Decrypts a message and appends the result to out, a block of characters at a time.
+	 * 
+	 * @param message Message to be decrypted
+	 * @param out Where the decrypted message is written
+	 * @throws IOException If out throws it
+	 */
+	public void decrypt(CharSequence message, Appendable out) 
+	throws IOException {
+		transform(message, out, true);
+	}
+	
+	/**
+	 * Encrypts everything read from in and writes it to out, a block of characters at a time,
+	 * so files of any size can be encrypted in a fixed amount of memory. Neither stream is closed.
+	 * 
+	 * @param in Where the message is read from
+	 * @param out Where the encrypted message is written
+	 * @throws IOException If reading or writing fails
+	 */
+	public void encrypt(Reader in, Writer out) 
+	throws IOException {
+		transform(in, out, false);
+	}
+	
+	/**
+	 * Decrypts everything read from in and writes it to out, a block of characters at a time.
+	 * Neither stream is closed.
+	 * 
+	 * @param in Where the message is read from
+	 * @param out Where the decrypted message is written
+	 * @throws IOException If reading or writing fails
+	 */
+	public void decrypt(Reader in, Writer out) 
+	throws IOException {
+		transform(in, out, true);
+	}
+	
+	private void transform(CharSequence message, Appendable out, boolean decrypt) 
+	throws IOException {
+		int length = message.length();
+		char[] chars = new char[Math.min(BLOCK, length)];
+		int[] keys = new int[chars.length];
+		for (int start=0; start < length; start += chars.length) {
+			int len = Math.min(chars.length, length-start);
+			for (int i=0; i < len; i++) {
+				chars[i] = message.charAt(start+i);
 			}
-			
+			write(out, chars, transform(chars, len, keys, decrypt));
+		}
+	}
+	
+	private void transform(Reader in, Writer out, boolean decrypt) 
+	throws IOException {
+		char[] chars = new char[BLOCK];
+		int[] keys = new int[BLOCK];
+		int len;
+		while ((len = in.read(chars)) != -1) {
+			out.write(chars, 0, transform(chars, len, keys, decrypt));
 		}
-		for(int i=0; i<m.length();i++){
-			int index=(int)m.charAt(i);
-			index-=64;
-			index-=getKey();
-			if(index<=0){
-				index=index+26;
+	}
+	
+	private static void write(Appendable out, char[] chars, int len) 
+	throws IOException {
+		if (out instanceof Writer) {
+			((Writer)out).write(chars, 0, len);
+		} else {
+			out.append(CharBuffer.wrap(chars, 0, len));
+		}
+	}
+	
+	/**
+	 * Encrypts or decrypts characters in place. First the characters that are not upper case
+	 * letters are dropped, moving the rest to the front of the array, then each remaining
+	 * character is shifted by the next key; keys are drawn a block at a time into keys.
+	 * 
+	 * @param chars Characters to transform
+	 * @param len Number of characters in chars to transform
+	 * @param keys Buffer for keys
+	 * @param decrypt True to decrypt, false to encrypt
+	 * @return Number of characters left at the front of chars
+	 */
+	private int transform(char[] chars, int len, int[] keys, boolean decrypt) {
+		int n = 0;
+		for (int i=0; i < len; i++) {
+			if (isMessageChar(chars[i])) {
+				chars[n++] = chars[i];
+			}
+		}
+		for (int start=0; start < n; start += keys.length) {
+			int count = Math.min(keys.length, n-start);
+			nextKeys(keys, 0, count);
+			for (int i=0; i < count; i++) {
+				chars[start+i] = decrypt ? decryptChar(chars[start+i], keys[i]) : encryptChar(chars[start+i], keys[i]);
 			}
-			index+=64;
-			char ch=(char)index;
-			result+=ch;
 		}
-	    return result;
+		return n;
+	}
+	
+	/**
+	 * Returns true for the characters that are kept in a message: upper case letters
+	 */
+	static boolean isMessageChar(char ch) {
+		return Character.isLetter(ch) && Character.isUpperCase(ch);
+	}
+	
+	/**
+	 * Encrypts one upper case letter with a key between 1 and 26
+	 */
+	static char encryptChar(char ch, int key) {
+		int index=ch-64+key;
+		if(index>26){
+			index=index-26;
+		}
+		return (char)(index+64);
+	}
+	
+	/**
+	 * Decrypts one upper case letter with a key between 1 and 26
+	 */
+	static char decryptChar(char ch, int key) {
+		int index=ch-64-key;
+		if(index<=0){
+			index=index+26;
+		}
+		return (char)(index+64);
 	}
 }
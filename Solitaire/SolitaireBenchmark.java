@@ -0,0 +1,224 @@
+package solitaire;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/**
+ * Benchmark and correctness check for the Solitaire engines. Run with
+ * <pre>
+ *     java solitaire.SolitaireBenchmark [maxMessageSize]
+ * </pre>
+ * First checks that every alternative way of producing keys gives exactly the same keystream
+ * as the reference linked list deck, for a set of fixed-seed decks. Then times each of the four
+ * steps and getKey on both decks, and encrypt and decrypt end to end on messages from 16 bytes
+ * to 16 MB (or maxMessageSize), reporting characters per second and bytes allocated per character.
+ * All decks and messages come from fixed seeds, so every run measures the same work.
+ *
+ * @author RU NB CS112
+ */
+public class SolitaireBenchmark {
+
+	private static final long SEED = 112;
+	private static final int CHECK_DECKS = 2000;
+	private static final int CHECK_KEYS = 1000;
+	private static final int STEP_OPS = 2000000;
+	private static final int WARMUP_ROUNDS = 3;
+
+	/**
+	 * Keeps results alive so the JIT cannot drop the work that made them
+	 */
+	private static long sink;
+
+	public static void main(String[] args)
+	throws Exception {
+		int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 16 << 20;
+		if (!checkEngines()) {
+			System.exit(1);
+		}
+		benchmarkSteps();
+		benchmarkCipher(maxSize);
+		System.out.println("(sink " + sink + ")");
+	}
+
+	/**
+	 * Compares the keystream of every engine against the linked list deck.
+	 *
+	 * @return True if they all agree
+	 */
+	static boolean checkEngines()
+	throws Exception {
+		SplittableRandom random = new SplittableRandom(SEED);
+		KeystreamCache cache = new KeystreamCache(16);
+		int[] expected = new int[CHECK_KEYS];
+		int[] got = new int[CHECK_KEYS];
+		for (int d=0; d < CHECK_DECKS; d++) {
+			DeckSnapshot deck = DeckSnapshot.shuffled(random);
+
+			Solitaire reference = new Solitaire();
+			reference.restore(deck);
+			for (int i=0; i < CHECK_KEYS; i++) {
+				expected[i] = reference.getKey();
+			}
+
+			ArrayDeck array = new ArrayDeck(deck.toArray());
+			for (int i=0; i < CHECK_KEYS; i++) {
+				got[i] = array.getKey();
+			}
+			if (!same("ArrayDeck.getKey", d, expected, got)) {
+				return false;
+			}
+
+			Solitaire batch = new Solitaire();
+			batch.useArrayDeck(true);
+			batch.restore(deck);
+			batch.nextKeys(got, 0, CHECK_KEYS);
+			if (!same("Solitaire.nextKeys", d, expected, got)) {
+				return false;
+			}
+
+			byte[] cached = cache.keys(deck, CHECK_KEYS);
+			for (int i=0; i < CHECK_KEYS; i++) {
+				got[i] = cached[i];
+			}
+			if (!same("KeystreamCache", d, expected, got)) {
+				return false;
+			}
+
+			Solitaire skipped = new Solitaire();
+			skipped.useArrayDeck(true);
+			skipped.restore(DeckSnapshot.fromBytes(deck.toBytes()));
+			skipped.skip(CHECK_KEYS/2);
+			skipped.nextKeys(got, CHECK_KEYS/2, CHECK_KEYS - CHECK_KEYS/2);
+			System.arraycopy(expected, 0, got, 0, CHECK_KEYS/2);
+			if (!same("snapshot bytes and skip", d, expected, got)) {
+				return false;
+			}
+		}
+		System.out.println("Keystreams agree: " + CHECK_DECKS + " decks x " + CHECK_KEYS + " keys");
+		return true;
+	}
+
+	private static boolean same(String engine, int deck, int[] expected, int[] got) {
+		for (int i=0; i < expected.length; i++) {
+			if (expected[i] != got[i]) {
+				System.out.println("MISMATCH: " + engine + " deck " + deck + " key " + i
+						+ ": expected " + expected[i] + ", got " + got[i]);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Times each step on its own, for both decks.
+	 */
+	static void benchmarkSteps() {
+		System.out.println();
+		System.out.printf("%-12s %14s %14s%n", "step", "list ns/op", "array ns/op");
+		String[] steps = {"jokerA", "jokerB", "tripleCut", "countCut", "getKey"};
+		for (int s=0; s < steps.length; s++) {
+			double list = 0, array = 0;
+			for (int round=0; round <= WARMUP_ROUNDS; round++) {
+				Solitaire reference = new Solitaire();
+				reference.makeDeck(SEED);
+				ArrayDeck deck = new ArrayDeck(reference.getDeck());
+				long start = System.nanoTime();
+				for (int i=0; i < STEP_OPS; i++) {
+					listStep(reference, s);
+				}
+				list = (System.nanoTime() - start) / (double)STEP_OPS;
+				start = System.nanoTime();
+				for (int i=0; i < STEP_OPS; i++) {
+					arrayStep(deck, s);
+				}
+				array = (System.nanoTime() - start) / (double)STEP_OPS;
+				sink += reference.getDeck()[0] + deck.cards[0];
+			}
+			System.out.printf("%-12s %14.1f %14.1f%n", steps[s], list, array);
+		}
+	}
+
+	private static void listStep(Solitaire deck, int step) {
+		switch (step) {
+			case 0: deck.jokerA(); break;
+			case 1: deck.jokerB(); break;
+			case 2: deck.tripleCut(); break;
+			case 3: deck.countCut(); break;
+			default: sink += deck.getKey();
+		}
+	}
+
+	private static void arrayStep(ArrayDeck deck, int step) {
+		switch (step) {
+			case 0: deck.jokerA(); break;
+			case 1: deck.jokerB(); break;
+			case 2: deck.tripleCut(); break;
+			case 3: deck.countCut(); break;
+			default: sink += deck.getKey();
+		}
+	}
+
+	/**
+	 * Times encrypt and decrypt end to end, for both decks, on messages from 16 bytes up.
+	 */
+	static void benchmarkCipher(int maxSize) {
+		System.out.println();
+		System.out.printf("%-10s %-8s %-6s %16s %14s%n", "size", "op", "deck", "chars/sec", "bytes/char");
+		DeckSnapshot deck = DeckSnapshot.shuffled(new SplittableRandom(SEED));
+		for (int size=16; size <= maxSize; size *= 16) {
+			String message = message(size);
+			String cipherText = null;
+			for (int array=0; array < 2; array++) {
+				for (int decrypt=0; decrypt < 2; decrypt++) {
+					String input = decrypt == 1 ? cipherText : message;
+					// small messages are repeated so each measurement runs a similar amount of work
+					int reps = Math.max(1, (1 << 20) / size);
+					double charsPerSec = 0, bytesPerChar = 0;
+					for (int round=0; round <= WARMUP_ROUNDS; round++) {
+						long bytes = allocatedBytes();
+						long start = System.nanoTime();
+						for (int r=0; r < reps; r++) {
+							Solitaire cipher = new Solitaire();
+							cipher.useArrayDeck(array == 1);
+							cipher.restore(deck);
+							String out = decrypt == 1 ? cipher.decrypt(input) : cipher.encrypt(input);
+							sink += out.length();
+							if (decrypt == 0) {
+								cipherText = out;
+							}
+						}
+						long time = System.nanoTime() - start;
+						bytes = allocatedBytes() - bytes;
+						charsPerSec = (double)size * reps / time * 1e9;
+						bytesPerChar = (double)bytes / ((double)size * reps);
+					}
+					System.out.printf("%-10d %-8s %-6s %16.0f %14.2f%n", size, decrypt == 1 ? "decrypt" : "encrypt",
+							array == 1 ? "array" : "list", charsPerSec, bytesPerChar);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Upper case letters from a fixed seed
+	 */
+	private static String message(int size) {
+		SplittableRandom random = new SplittableRandom(SEED + size);
+		char[] chars = new char[size];
+		for (int i=0; i < size; i++) {
+			chars[i] = (char)('A' + random.nextInt(26));
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Bytes allocated so far by this thread, or 0 if the JVM cannot tell
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+}